@@ -0,0 +1,134 @@
+package com.mandacarubroker.analytics;
+
+/**
+ * Sliding window of the most recent price updates of one stock.
+ *
+ * Prices and volumes are kept in primitive ring buffers together with running
+ * sums, so each update costs O(1) and allocates nothing. The running sums are
+ * recomputed from the buffers every time the ring wraps around to keep
+ * floating-point drift bounded.
+ */
+class PriceWindow {
+
+    /**
+     * The number of updates covered by the window.
+     */
+    private final int size;
+
+    /**
+     * Smoothing factor of the exponential moving average.
+     */
+    private final double alpha;
+
+    /**
+     * Ring buffer of the prices in the window.
+     */
+    private final double[] prices;
+
+    /**
+     * Ring buffer of the volumes in the window, aligned with {@link #prices}.
+     */
+    private final double[] volumes;
+
+    /**
+     * Index of the ring buffer slot written by the next update.
+     */
+    private int next;
+
+    /**
+     * Number of updates currently in the window.
+     */
+    private int count;
+
+    /**
+     * Running sum of the prices in the window.
+     */
+    private double priceSum;
+
+    /**
+     * Running sum of price times volume in the window.
+     */
+    private double priceVolumeSum;
+
+    /**
+     * Running sum of the volumes in the window.
+     */
+    private double volumeSum;
+
+    /**
+     * Exponential moving average of every price added so far.
+     */
+    private double ema;
+
+    /**
+     * Constructs an empty window.
+     *
+     * @param size The number of updates covered by the window. Must be positive.
+     */
+    PriceWindow(final int size) {
+        this.size = size;
+        this.alpha = 2.0 / (size + 1);
+        this.prices = new double[size];
+        this.volumes = new double[size];
+    }
+
+    /**
+     * Adds a price update, evicting the oldest one once the window is full.
+     *
+     * @param price The traded price.
+     * @param volume The traded volume.
+     */
+    void add(final double price, final double volume) {
+        if (count == size) {
+            priceSum -= prices[next];
+            priceVolumeSum -= prices[next] * volumes[next];
+            volumeSum -= volumes[next];
+        } else {
+            count++;
+        }
+
+        prices[next] = price;
+        volumes[next] = volume;
+        priceSum += price;
+        priceVolumeSum += price * volume;
+        volumeSum += volume;
+        ema = count == 1 ? price : ema + alpha * (price - ema);
+
+        next++;
+        if (next == size) {
+            next = 0;
+            recomputeSums();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int count() {
+        return count;
+    }
+
+    double simpleMovingAverage() {
+        return priceSum / count;
+    }
+
+    double exponentialMovingAverage() {
+        return ema;
+    }
+
+    double volumeWeightedAveragePrice() {
+        return volumeSum == 0 ? simpleMovingAverage() : priceVolumeSum / volumeSum;
+    }
+
+    private void recomputeSums() {
+        priceSum = 0;
+        priceVolumeSum = 0;
+        volumeSum = 0;
+        for (int i = 0; i < count; i++) {
+            priceSum += prices[i];
+            priceVolumeSum += prices[i] * volumes[i];
+            volumeSum += volumes[i];
+        }
+    }
+}
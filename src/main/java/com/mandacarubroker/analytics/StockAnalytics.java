@@ -0,0 +1,114 @@
+package com.mandacarubroker.analytics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains streaming price analytics for every stock.
+ *
+ * Each stock owns one {@link PriceWindow} per configured window size. Price
+ * updates are folded into the windows as they happen, so reading the analytics
+ * never has to query the price history.
+ */
+@Component
+public class StockAnalytics {
+
+    /**
+     * The number of updates covered by each window, taken from
+     * {@code mandacarubroker.analytics.window-sizes}.
+     */
+    private final int[] windowSizes;
+
+    /**
+     * The windows of every stock, indexed like {@link #windowSizes}.
+     */
+    private final Map<String, PriceWindow[]> windowsByStock = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the analytics with the given window sizes.
+     *
+     * @param windowSizes The number of updates covered by each window. All sizes must be positive.
+     */
+    public StockAnalytics(
+            final @Value("${mandacarubroker.analytics.window-sizes:5,20,50}") int[] windowSizes) {
+        for (int windowSize : windowSizes) {
+            if (windowSize <= 0) {
+                throw new IllegalArgumentException("Analytics window sizes must be positive");
+            }
+        }
+        this.windowSizes = windowSizes.clone();
+    }
+
+    /**
+     * Records a price update of a stock in all of its windows.
+     * After the first update of a stock this allocates nothing.
+     *
+     * @param stockId The unique identifier of the stock.
+     * @param price The traded price.
+     * @param volume The traded volume.
+     */
+    public void record(final String stockId, final double price, final double volume) {
+        PriceWindow[] windows = windowsByStock.get(stockId);
+        if (windows == null) {
+            windows = windowsByStock.computeIfAbsent(stockId, id -> createWindows());
+        }
+
+        synchronized (windows) {
+            for (PriceWindow window : windows) {
+                window.add(price, volume);
+            }
+        }
+    }
+
+    /**
+     * Discards the analytics of a stock.
+     *
+     * @param stockId The unique identifier of the stock.
+     */
+    public void remove(final String stockId) {
+        windowsByStock.remove(stockId);
+    }
+
+    /**
+     * Returns the current analytics of a stock.
+     *
+     * @param stockId The unique identifier of the stock.
+     * @return An {@link Optional} containing the analytics, or an empty {@link Optional}
+     *         if no price update was recorded for the stock.
+     */
+    public Optional<StockAnalyticsDTO> getAnalytics(final String stockId) {
+        PriceWindow[] windows = windowsByStock.get(stockId);
+        if (windows == null) {
+            return Optional.empty();
+        }
+
+        List<StockAnalyticsDTO.Window> result = new ArrayList<>(windows.length);
+        synchronized (windows) {
+            for (PriceWindow window : windows) {
+                result.add(new StockAnalyticsDTO.Window(
+                        window.size(),
+                        window.count(),
+                        window.simpleMovingAverage(),
+                        window.exponentialMovingAverage(),
+                        window.volumeWeightedAveragePrice()
+                ));
+            }
+        }
+
+        return Optional.of(new StockAnalyticsDTO(stockId, result));
+    }
+
+    private PriceWindow[] createWindows() {
+        PriceWindow[] windows = new PriceWindow[windowSizes.length];
+        for (int i = 0; i < windowSizes.length; i++) {
+            windows[i] = new PriceWindow(windowSizes[i]);
+        }
+        return windows;
+    }
+}
@@ -0,0 +1,27 @@
+package com.mandacarubroker.analytics;
+
+import java.util.List;
+
+public record StockAnalyticsDTO(
+        String stockId,
+        List<Window> windows
+) {
+
+    /**
+     * Aggregates over the most recent price updates of a stock.
+     *
+     * @param size The configured number of updates covered by the window.
+     * @param count The number of updates currently in the window.
+     * @param sma The simple moving average of the prices in the window.
+     * @param ema The exponential moving average with smoothing factor {@code 2 / (size + 1)}.
+     * @param vwap The volume-weighted average price of the window.
+     */
+    public record Window(
+            int size,
+            int count,
+            double sma,
+            double ema,
+            double vwap
+    ) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.mandacarubroker.audit;
+
+/**
+ * The kind of change recorded in the stock audit trail.
+ */
+public enum StockAuditAction {
+
+    /**
+     * The stock was created.
+     */
+    CREATE,
+
+    /**
+     * The stock was updated.
+     */
+    UPDATE,
+
+    /**
+     * The stock was deleted.
+     */
+    DELETE
+}
@@ -0,0 +1,25 @@
+package com.mandacarubroker.audit;
+
+import com.mandacarubroker.domain.stock.Stock;
+
+import java.time.Instant;
+
+/**
+ * A change made to a stock through the service layer.
+ *
+ * @param stockId The unique identifier of the changed stock.
+ * @param action The kind of change.
+ * @param caller Who made the change.
+ * @param occurredAt When the change was made.
+ * @param before The stock before the change, or null when it was created.
+ * @param after The stock after the change, or null when it was deleted.
+ */
+public record StockAuditEvent(
+        String stockId,
+        StockAuditAction action,
+        String caller,
+        Instant occurredAt,
+        Stock before,
+        Stock after
+) {
+}
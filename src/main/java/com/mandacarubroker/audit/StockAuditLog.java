@@ -0,0 +1,539 @@
+package com.mandacarubroker.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mandacarubroker.domain.stock.Stock;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Audit trail of the changes made to stocks, stored in the {@code stock_audit} table.
+ *
+ * Events are put on a bounded queue by the request thread and written by a
+ * background thread in multi-row inserts. A batch that fails with a transient
+ * error, such as a lost connection, is kept and retried with exponential backoff,
+ * so a database outage delays events instead of dropping them. A batch that fails
+ * with any other error is written one event at a time, and only the events that
+ * still fail are dropped and logged in full. When the queue is full, or the writer
+ * is not running, the event is written synchronously instead, and a failure of
+ * that write is thrown to the caller.
+ *
+ * On shutdown the writer stops after the web server, then the pending events are
+ * written before the data source is closed, retrying for up to
+ * {@link #SHUTDOWN_RETRY_TIMEOUT}. Events that still cannot be written are logged
+ * in full so they can be recovered.
+ */
+@Component
+public final class StockAuditLog implements SmartLifecycle {
+
+    /**
+     * Logger for write failures and unwritten events.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockAuditLog.class);
+
+    /**
+     * The caller recorded for changes not made within an HTTP request.
+     */
+    static final String SYSTEM_CALLER = "system";
+
+    /**
+     * The start of the multi-row insert, followed by one {@link #INSERT_ROW} per event.
+     */
+    private static final String INSERT_PREFIX = "INSERT INTO stock_audit "
+            + "(stock_id, action, caller, occurred_at, before_value, after_value) VALUES ";
+
+    /**
+     * The placeholders of one event in the multi-row insert.
+     */
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?)";
+
+    /**
+     * The number of placeholders in {@link #INSERT_ROW}.
+     */
+    private static final int COLUMN_COUNT = 6;
+
+    /**
+     * The delay before the first retry of a failed batch.
+     */
+    private static final long INITIAL_RETRY_DELAY_MS = 100;
+
+    /**
+     * The longest delay between two retries of a failed batch.
+     */
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+
+    /**
+     * Stops after the web server, whose graceful shutdown runs in
+     * {@code DEFAULT_PHASE - 1024} and whose stop runs in {@code DEFAULT_PHASE - 2048}.
+     */
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    /**
+     * How long {@link #stop()} keeps retrying to write the pending events.
+     */
+    static final Duration SHUTDOWN_RETRY_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * The template used to access the audit table.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The mapper used to store stock values as JSON.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The maximum number of events written by a single insert.
+     */
+    private final int batchSize;
+
+    /**
+     * How long the writer waits for new events before checking whether it was stopped.
+     */
+    private final long pollIntervalMs;
+
+    /**
+     * Events waiting for the writer.
+     */
+    private final BlockingQueue<StockAuditEvent> queue;
+
+    /**
+     * Guards {@link #running}: the read lock is held while queueing an event and the
+     * write lock while stopping, so no event is queued after the final drain.
+     */
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+    /**
+     * Held while taking events from the queue and writing them, so {@link #flush()}
+     * returns only once every event queued before it was written.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Events taken from the queue but not written yet. Guarded by {@link #writeLock}.
+     */
+    private final List<StockAuditEvent> pending = new ArrayList<>();
+
+    /**
+     * Whether the background writer is running. Guarded by {@link #runningLock}.
+     */
+    private volatile boolean running;
+
+    /**
+     * The background writer thread.
+     */
+    private Thread writer;
+
+    /**
+     * Released by {@link #stop()} to wake the writer from a retry delay.
+     */
+    private CountDownLatch stopSignal;
+
+    /**
+     * Constructs the audit log.
+     *
+     * @param jdbcTemplate The template used to access the audit table.
+     * @param objectMapper The mapper used to store stock values as JSON.
+     * @param queueCapacity How many events can wait to be written before requests write
+     * them synchronously.
+     * @param batchSize The maximum number of events written by a single insert.
+     * @param pollIntervalMs How long the writer waits for new events before checking
+     * whether it was stopped.
+     */
+    public StockAuditLog(
+            final JdbcTemplate jdbcTemplate,
+            final ObjectMapper objectMapper,
+            final @Value("${mandacarubroker.audit.queue-capacity:10000}") int queueCapacity,
+            final @Value("${mandacarubroker.audit.batch-size:500}") int batchSize,
+            final @Value("${mandacarubroker.audit.poll-interval-ms:50}") long pollIntervalMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Records a change made to a stock by the current caller.
+     *
+     * @param action The kind of change.
+     * @param before The stock before the change, or null when it was created.
+     * @param after The stock after the change, or null when it was deleted.
+     */
+    public void record(final StockAuditAction action, final Stock before, final Stock after) {
+        String stockId = after != null ? after.getId() : before.getId();
+        StockAuditEvent event = new StockAuditEvent(stockId, action, currentCaller(), Instant.now(),
+                before != null ? new Stock(before) : null, after != null ? new Stock(after) : null);
+
+        boolean queued;
+        runningLock.readLock().lock();
+        try {
+            queued = running && queue.offer(event);
+        } finally {
+            runningLock.readLock().unlock();
+        }
+
+        if (!queued) {
+            write(List.of(event));
+        }
+    }
+
+    /**
+     * Retrieves a page of the audit trail of a stock, most recent change first.
+     * Events still waiting to be written are not included.
+     *
+     * @param stockId The unique identifier of the stock.
+     * @param page The zero-based page number.
+     * @param size The maximum number of events per page.
+     * @return The events of the requested page.
+     */
+    public List<StockAuditEvent> findByStockId(final String stockId, final int page,
+                                               final int size) {
+        return jdbcTemplate.query(
+                "SELECT stock_id, action, caller, occurred_at, before_value, after_value "
+                        + "FROM stock_audit WHERE stock_id = ? "
+                        + "ORDER BY occurred_at DESC, id DESC LIMIT ? OFFSET ?",
+                eventRowMapper(),
+                stockId, size, (long) page * size
+        );
+    }
+
+    /**
+     * Writes every pending and queued event.
+     *
+     * @throws org.springframework.dao.DataAccessException If a batch cannot be written
+     *         because of a transient error. The events that were not written stay pending.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            while (true) {
+                if (pending.isEmpty() && queue.drainTo(pending, batchSize) == 0) {
+                    return;
+                }
+                writePending();
+            }
+        }
+    }
+
+    /**
+     * Starts the background writer.
+     */
+    @Override
+    public void start() {
+        stopSignal = new CountDownLatch(1);
+        running = true;
+        writer = new Thread(this::writeQueuedEvents, "stock-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the background writer and writes the pending events, retrying failed
+     * writes with backoff for up to {@link #SHUTDOWN_RETRY_TIMEOUT}.
+     */
+    @Override
+    public void stop() {
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        stopSignal.countDown();
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long deadline = System.nanoTime() + SHUTDOWN_RETRY_TIMEOUT.toNanos();
+        long retryDelayMs = INITIAL_RETRY_DELAY_MS;
+        while (true) {
+            try {
+                flush();
+                return;
+            } catch (RuntimeException e) {
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelayMs) > deadline
+                        || Thread.currentThread().isInterrupted()) {
+                    logUnwrittenEvents(e);
+                    return;
+                }
+                LOGGER.warn("Failed to write pending stock audit events on shutdown, "
+                        + "retrying in {} ms", retryDelayMs, e);
+                sleepQuietly(retryDelayMs);
+                retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the background writer is running.
+     *
+     * @return Whether the audit log was started and not stopped since.
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server, so changes made by in-flight requests are written.
+     */
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Writes queued events in batches until stopped. On a transient failure the
+     * batch stays pending and is retried after a delay that doubles up to
+     * {@link #MAX_RETRY_DELAY_MS}.
+     */
+    private void writeQueuedEvents() {
+        long retryDelayMs = INITIAL_RETRY_DELAY_MS;
+
+        while (running) {
+            try {
+                writePendingBatch();
+                retryDelayMs = INITIAL_RETRY_DELAY_MS;
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to write stock audit events, retrying in {} ms",
+                        retryDelayMs, e);
+            }
+
+            try {
+                stopSignal.await(retryDelayMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+        }
+    }
+
+    /**
+     * Writes the pending batch, first filling it from the queue if it is empty.
+     * Returns without writing if no event arrives within the poll interval.
+     *
+     * @throws InterruptedException If interrupted while waiting for an event.
+     */
+    private void writePendingBatch() throws InterruptedException {
+        synchronized (writeLock) {
+            if (pending.isEmpty()) {
+                StockAuditEvent first = queue.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return;
+                }
+                pending.add(first);
+                queue.drainTo(pending, batchSize - 1);
+            }
+            writePending();
+        }
+    }
+
+    /**
+     * Writes the pending events in a single insert. If that fails with an error
+     * that is not transient, such as a constraint violation caused by one event,
+     * the events are written one at a time and those that still fail are logged
+     * and dropped, so one bad event does not block the others. Must be called
+     * while holding {@link #writeLock}.
+     *
+     * @throws RuntimeException If a write fails with a transient error. The events
+     *                          that were not written stay pending.
+     */
+    private void writePending() {
+        try {
+            write(pending);
+            pending.clear();
+            return;
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            LOGGER.warn("Failed to write {} stock audit events at once, writing them one by one",
+                    pending.size(), e);
+        }
+
+        Iterator<StockAuditEvent> events = pending.iterator();
+        while (events.hasNext()) {
+            StockAuditEvent event = events.next();
+            try {
+                write(List.of(event));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                logEvent("Dropped", event, e);
+            }
+            events.remove();
+        }
+    }
+
+    /**
+     * Tells whether a write may succeed if retried later, such as after a lost
+     * connection or a deadlock.
+     *
+     * @param e The failure of the write.
+     * @return Whether the write should be retried.
+     */
+    private static boolean isTransient(final RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void logUnwrittenEvents(final RuntimeException cause) {
+        synchronized (writeLock) {
+            queue.drainTo(pending);
+            LOGGER.error("Could not write {} stock audit events before shutdown",
+                    pending.size(), cause);
+            for (StockAuditEvent event : pending) {
+                logEvent("Unwritten", event, null);
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Logs an event in full, so it can be recovered from the log.
+     *
+     * @param prefix What happened to the event.
+     * @param event The event.
+     * @param cause Why the event could not be written, or null.
+     */
+    private void logEvent(final String prefix, final StockAuditEvent event,
+                          final Throwable cause) {
+        LOGGER.error("{} stock audit event: stockId={} action={} caller={} occurredAt={} "
+                        + "before={} after={}",
+                prefix, event.stockId(), event.action(), event.caller(), event.occurredAt(),
+                describe(event.before()), describe(event.after()), cause);
+    }
+
+    /**
+     * Describes a stock for the log as JSON, or with its fields if it cannot be
+     * serialized.
+     *
+     * @param stock The stock, or null.
+     * @return The description of the stock.
+     */
+    private String describe(final Stock stock) {
+        try {
+            return toJson(stock);
+        } catch (IllegalStateException e) {
+            return String.valueOf(stock);
+        }
+    }
+
+    private static void sleepQuietly(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(final List<StockAuditEvent> events) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        Object[] args = new Object[events.size() * COLUMN_COUNT];
+        int arg = 0;
+
+        for (StockAuditEvent event : events) {
+            if (arg > 0) {
+                sql.append(", ");
+            }
+            sql.append(INSERT_ROW);
+            args[arg++] = event.stockId();
+            args[arg++] = event.action().name();
+            args[arg++] = event.caller();
+            args[arg++] = Timestamp.from(event.occurredAt());
+            args[arg++] = toJson(event.before());
+            args[arg++] = toJson(event.after());
+        }
+
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private RowMapper<StockAuditEvent> eventRowMapper() {
+        return (rs, rowNum) -> new StockAuditEvent(
+                rs.getString("stock_id"),
+                StockAuditAction.valueOf(rs.getString("action")),
+                rs.getString("caller"),
+                rs.getTimestamp("occurred_at").toInstant(),
+                fromJson(rs.getString("before_value")),
+                fromJson(rs.getString("after_value"))
+        );
+    }
+
+    private String toJson(final Stock stock) {
+        if (stock == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(stock);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stock " + stock.getId(), e);
+        }
+    }
+
+    private Stock fromJson(final String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, Stock.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize audited stock", e);
+        }
+    }
+
+    /**
+     * Identifies the caller of the current HTTP request by its authenticated principal,
+     * or by its remote address when it is anonymous.
+     *
+     * @return The caller of the current request, or {@link #SYSTEM_CALLER}.
+     */
+    private static String currentCaller() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return SYSTEM_CALLER;
+        }
+
+        HttpServletRequest request = servletAttributes.getRequest();
+        if (request.getUserPrincipal() != null) {
+            return request.getUserPrincipal().getName();
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,286 @@
+package com.mandacarubroker.cache;
+
+import com.mandacarubroker.domain.stock.Stock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local cache of stocks kept coherent across application instances
+ * through the {@code stock_change_log} table.
+ *
+ * Every write records the changed stock id in the change log. Each instance
+ * polls the log for versions it has not applied yet, using the primary key
+ * index, and evicts the matching stocks. Old log rows are compacted away
+ * periodically. The cache is disabled unless {@code mandacarubroker.cache.enabled}
+ * is set, in which case every method is a no-op.
+ *
+ * Cached stocks expire after the change log retention, which bounds how long a
+ * stale entry can survive a write whose change log row was never recorded, such
+ * as a write to a store that does not take part in the database transaction.
+ */
+@Component
+public class StockCache {
+
+    /**
+     * How many versions behind the newest applied one are still waited for.
+     * Versions come from an identity column, so a transaction that commits late can
+     * make a lower version visible after a higher one was already applied.
+     */
+    private static final long LATE_COMMIT_WINDOW = 1000;
+
+    /**
+     * The template used to access the change log.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Whether caching is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * How long change log rows and cached stocks are kept.
+     */
+    private final Duration retention;
+
+    /**
+     * The cached stocks by unique identifier.
+     */
+    private final Map<String, CachedStock> stocks = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every eviction, so a value read from the store while an
+     * eviction happened is not cached.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Versions within {@link #LATE_COMMIT_WINDOW} of {@link #lastVersion} that were
+     * skipped, because their transaction had not committed yet or rolled back.
+     * Only used by the polling thread.
+     */
+    private final NavigableSet<Long> missingVersions = new TreeSet<>();
+
+    /**
+     * The newest version applied. Only used by the polling thread.
+     */
+    private long lastVersion;
+
+    /**
+     * When the change log was last polled. Only used by the polling thread.
+     */
+    private Instant lastPoll;
+
+    /**
+     * Set by the first poll. Until then the change log position is unknown and
+     * the cache is bypassed.
+     */
+    private volatile boolean initialized;
+
+    /**
+     * Constructs the cache.
+     *
+     * @param jdbcTemplate The template used to access the change log.
+     * @param enabled Whether caching is enabled.
+     * @param retention How long change log rows are kept before being compacted.
+     */
+    public StockCache(
+            final JdbcTemplate jdbcTemplate,
+            final @Value("${mandacarubroker.cache.enabled:false}") boolean enabled,
+            final @Value("${mandacarubroker.cache.change-log.retention:PT10M}") Duration retention
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.retention = retention;
+    }
+
+    /**
+     * Returns the current eviction count, to be passed to {@link #put(Stock, long)}
+     * after reading a stock from the store.
+     *
+     * @return The number of evictions so far.
+     */
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Retrieves a cached stock.
+     *
+     * @param id The unique identifier of the stock.
+     * @return An {@link Optional} containing the cached stock, or an empty {@link Optional}.
+     */
+    public Optional<Stock> get(final String id) {
+        if (!enabled || !initialized) {
+            return Optional.empty();
+        }
+
+        CachedStock cachedStock = stocks.get(id);
+        if (cachedStock == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - cachedStock.cachedAt() > retention.toNanos()) {
+            stocks.remove(id, cachedStock);
+            return Optional.empty();
+        }
+        return Optional.of(new Stock(cachedStock.stock()));
+    }
+
+    /**
+     * Caches a stock read from the store, unless an eviction happened since the
+     * read started.
+     *
+     * @param stock The stock read from the store.
+     * @param evictionCount The value of {@link #evictionCount()} taken before the read.
+     */
+    public void put(final Stock stock, final long evictionCount) {
+        if (!enabled || !initialized) {
+            return;
+        }
+
+        stocks.put(stock.getId(), new CachedStock(new Stock(stock), System.nanoTime()));
+        if (evictions.get() != evictionCount) {
+            stocks.remove(stock.getId());
+        }
+    }
+
+    /**
+     * Records a write of a stock in the change log and evicts it locally.
+     * Other instances evict it on their next poll.
+     *
+     * When called within a transaction the change log row commits together with
+     * the write, and the stock is evicted again after the commit, so a value
+     * read and cached before the write became visible is not kept.
+     *
+     * @param stockId The unique identifier of the written stock.
+     */
+    public void invalidate(final String stockId) {
+        if (!enabled) {
+            return;
+        }
+
+        jdbcTemplate.update("INSERT INTO stock_change_log (stock_id) VALUES (?)", stockId);
+        evict(stockId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            evict(stockId);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Evicts the stocks written since the last poll, on this or any other instance.
+     */
+    @Scheduled(
+            fixedDelayString = "${mandacarubroker.cache.change-log.poll-interval-ms:200}",
+            initialDelayString = "${mandacarubroker.cache.change-log.poll-interval-ms:200}"
+    )
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        if (!initialized || lastPoll.plus(retention).isBefore(now)) {
+            // Changes may have been compacted away since the last poll.
+            lastVersion = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(version), 0) FROM stock_change_log", Long.class);
+            missingVersions.clear();
+            clear();
+            initialized = true;
+        } else {
+            StringBuilder sql = new StringBuilder(
+                    "SELECT version, stock_id FROM stock_change_log WHERE version > ?");
+            List<Object> args = new ArrayList<>(missingVersions.size() + 1);
+            args.add(lastVersion);
+            if (!missingVersions.isEmpty()) {
+                sql.append(" OR version IN (")
+                        .append(String.join(", ", Collections.nCopies(missingVersions.size(), "?")))
+                        .append(')');
+                args.addAll(missingVersions);
+            }
+
+            jdbcTemplate.query(sql.append(" ORDER BY version").toString(),
+                    (RowCallbackHandler) rs -> apply(rs.getLong(1), rs.getString(2)),
+                    args.toArray());
+            missingVersions.headSet(lastVersion - LATE_COMMIT_WINDOW, true).clear();
+        }
+        lastPoll = now;
+    }
+
+    /**
+     * Deletes change log rows older than the configured retention.
+     */
+    @Scheduled(
+            fixedDelayString = "${mandacarubroker.cache.change-log.compaction-interval-ms:60000}"
+    )
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+
+        jdbcTemplate.update("DELETE FROM stock_change_log WHERE changed_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+    }
+
+    /**
+     * Evicts the stock of a change log row unless its version was already applied,
+     * remembering the versions skipped before it.
+     *
+     * @param version The version of the change log row.
+     * @param stockId The unique identifier of the changed stock.
+     */
+    private void apply(final long version, final String stockId) {
+        if (version > lastVersion) {
+            long firstSkipped = Math.max(lastVersion + 1, version - LATE_COMMIT_WINDOW);
+            for (long skipped = firstSkipped; skipped < version; skipped++) {
+                missingVersions.add(skipped);
+            }
+            lastVersion = version;
+        } else if (!missingVersions.remove(version)) {
+            return;
+        }
+        evict(stockId);
+    }
+
+    private void evict(final String stockId) {
+        evictions.incrementAndGet();
+        stocks.remove(stockId);
+    }
+
+    private void clear() {
+        evictions.incrementAndGet();
+        stocks.clear();
+    }
+
+    /**
+     * A cached copy of a stock.
+     *
+     * @param stock The copy of the stock read from the store.
+     * @param cachedAt The {@link System#nanoTime()} when it was cached.
+     */
+    private record CachedStock(Stock stock, long cachedAt) {
+    }
+}
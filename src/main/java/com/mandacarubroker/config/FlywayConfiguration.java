@@ -0,0 +1,148 @@
+package com.mandacarubroker.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.MigrationVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Controls how Flyway runs on startup.
+ */
+@Configuration
+public class FlywayConfiguration {
+
+    /**
+     * Logger for the migration strategy decisions.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlywayConfiguration.class);
+
+    /**
+     * Creates the migration strategy used when the application starts.
+     *
+     * By default every start runs {@code migrate}, which scans and checksums every
+     * migration on the classpath and validates them against the schema history.
+     * When {@code mandacarubroker.flyway.skip-validation-when-current} is enabled and
+     * {@link #isSchemaCurrent(Flyway)} holds, the migrate step (and its validation)
+     * is skipped to shorten startup.
+     *
+     * @param skipValidationWhenCurrent Whether to skip migrate and validation for an
+     * up-to-date schema.
+     * @return The Flyway migration strategy.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            final @Value("${mandacarubroker.flyway.skip-validation-when-current:false}")
+            boolean skipValidationWhenCurrent
+    ) {
+        return flyway -> {
+            if (skipValidationWhenCurrent && isSchemaCurrent(flyway)) {
+                LOGGER.info("Schema is at the latest version, skipping Flyway validation");
+                return;
+            }
+            flyway.migrate();
+        };
+    }
+
+    /**
+     * Checks whether the schema is at the newest bundled migration without letting
+     * Flyway scan and checksum the migrations. The newest version is read from the
+     * names of the versioned SQL migrations on the classpath, and the schema version
+     * from a single query on the schema history table.
+     *
+     * Only versioned SQL migrations in classpath locations, including their
+     * subdirectories, are considered. Any repeatable migration, Java migration,
+     * custom resolver, failed migration or other location makes this return
+     * false, so Flyway runs as usual.
+     *
+     * @param flyway The configured Flyway instance.
+     * @return Whether every bundled migration was applied successfully.
+     */
+    static boolean isSchemaCurrent(final Flyway flyway) {
+        try {
+            Optional<MigrationVersion> bundledVersion = newestBundledVersion(flyway);
+            Optional<MigrationVersion> appliedVersion = newestAppliedVersion(flyway);
+
+            return bundledVersion.isPresent() && appliedVersion.isPresent()
+                    && appliedVersion.get().compareTo(bundledVersion.get()) >= 0;
+        } catch (IOException | DataAccessException e) {
+            LOGGER.debug("Could not determine whether the schema is current", e);
+            return false;
+        }
+    }
+
+    private static Optional<MigrationVersion> newestBundledVersion(final Flyway flyway)
+            throws IOException {
+        if (flyway.getConfiguration().getJavaMigrations().length > 0
+                || flyway.getConfiguration().getResolvers().length > 0) {
+            return Optional.empty();
+        }
+
+        PathMatchingResourcePatternResolver resolver =
+                new PathMatchingResourcePatternResolver(flyway.getConfiguration().getClassLoader());
+        String versionedPrefix = flyway.getConfiguration().getSqlMigrationPrefix();
+        String repeatablePrefix = flyway.getConfiguration().getRepeatableSqlMigrationPrefix();
+        String separator = flyway.getConfiguration().getSqlMigrationSeparator();
+        MigrationVersion newest = null;
+
+        for (Location location : flyway.getConfiguration().getLocations()) {
+            if (!location.isClassPath()) {
+                return Optional.empty();
+            }
+            String pattern = "classpath*:" + location.getRootPath() + "/**/*";
+            if (resolver.getResources(pattern + ".class").length > 0) {
+                return Optional.empty();
+            }
+            for (String suffix : flyway.getConfiguration().getSqlMigrationSuffixes()) {
+                for (Resource resource : resolver.getResources(pattern + suffix)) {
+                    String name = resource.getFilename();
+                    if (name == null || name.startsWith(repeatablePrefix)) {
+                        return Optional.empty();
+                    }
+                    if (!name.startsWith(versionedPrefix) || !name.contains(separator)) {
+                        continue;
+                    }
+
+                    MigrationVersion version = MigrationVersion.fromVersion(
+                            name.substring(versionedPrefix.length(), name.indexOf(separator)));
+                    if (newest == null || version.compareTo(newest) > 0) {
+                        newest = version;
+                    }
+                }
+            }
+        }
+        return Optional.ofNullable(newest);
+    }
+
+    private static Optional<MigrationVersion> newestAppliedVersion(final Flyway flyway) {
+        String table = "\"" + flyway.getConfiguration().getTable() + "\"";
+        if (flyway.getConfiguration().getDefaultSchema() != null) {
+            table = "\"" + flyway.getConfiguration().getDefaultSchema() + "\"." + table;
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+        Integer failed = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE \"success\" = FALSE", Integer.class);
+        if (failed != null && failed > 0) {
+            return Optional.empty();
+        }
+
+        return jdbcTemplate.queryForList(
+                        "SELECT \"version\" FROM " + table + " WHERE \"version\" IS NOT NULL",
+                        String.class)
+                .stream()
+                .map(MigrationVersion::fromVersion)
+                .max(MigrationVersion::compareTo);
+    }
+}
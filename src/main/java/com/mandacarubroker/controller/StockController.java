@@ -1,17 +1,21 @@
 package com.mandacarubroker.controller;
 
+import com.mandacarubroker.analytics.StockAnalyticsDTO;
+import com.mandacarubroker.audit.StockAuditEvent;
 import com.mandacarubroker.domain.stock.Stock;
 import com.mandacarubroker.domain.stock.RequestStockDTO;
 import com.mandacarubroker.service.StockService;
 
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -33,6 +37,11 @@ public class StockController {
      */
     private final StockService stockService;
 
+    /**
+     * The largest page of the audit trail a client can request.
+     */
+    private static final int MAX_AUDIT_PAGE_SIZE = 100;
+
     /**
      * Constructs a StockController with the specified StockService.
      * This constructor initializes a StockController with the provided StockService.
@@ -49,10 +58,12 @@ public class StockController {
      * This method uses the HTTP GET operation to retrieve all stocks
      * from the associated service and returns them as a list. Each element
      * in the list represents a stock entity.
+     * The response is encoded as JSON by default or as CBOR when the client
+     * sends {@code Accept: application/cbor}.
      *
      * @return A list containing all available stocks.
      */
-    @GetMapping
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     public List<Stock> getAllStocks() {
         return stockService.getAllStocks();
     }
@@ -62,11 +73,14 @@ public class StockController {
      * This method uses the HTTP GET operation with a path variable to obtain
      * a specific stock from the associated service based on its ID.
      * The ID is provided as a path variable in the URL.
+     * The response is encoded as JSON by default or as CBOR when the client
+     * sends {@code Accept: application/cbor}.
      *
      * @param id The unique identifier of the stock to be retrieved.
      * @return The stock with the specified ID if found, or null if not found.
      */
-    @GetMapping("/{id}")
+    @GetMapping(value = "/{id}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     public ResponseEntity<Stock> getStockById(final @PathVariable String id) {
         Optional<Stock> responseStock = stockService.getStockById(id);
 
@@ -74,6 +88,49 @@ public class StockController {
         else return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Retrieves the streaming analytics of a stock.
+     * This method uses the HTTP GET operation to obtain the simple and exponential
+     * moving averages and the VWAP of the stock over each configured window.
+     *
+     * @param id The unique identifier of the stock.
+     * @return The analytics of the stock if any price change was recorded for it,
+     * or a 404 (Not Found) response otherwise.
+     */
+    @GetMapping("/{id}/analytics")
+    public ResponseEntity<StockAnalyticsDTO> getStockAnalytics(final @PathVariable String id) {
+        Optional<StockAnalyticsDTO> responseAnalytics = stockService.getStockAnalytics(id);
+
+        if (responseAnalytics.isPresent()) {
+            return ResponseEntity.ok(responseAnalytics.get());
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Retrieves a page of the audit trail of a stock.
+     * This method uses the HTTP GET operation to obtain the creations, updates
+     * and deletions of the stock, with their values before and after the change,
+     * the caller and the time, most recent first.
+     *
+     * @param id The unique identifier of the stock.
+     * @param page The zero-based page number, 0 by default.
+     * @param size The maximum number of changes per page, 20 by default and at most 100.
+     * @return The changes of the requested page, or a 400 (Bad Request) response
+     * if the page or size is out of range.
+     */
+    @GetMapping("/{id}/audit")
+    public ResponseEntity<List<StockAuditEvent>> getStockAudit(
+            final @PathVariable String id,
+            final @RequestParam(defaultValue = "0") int page,
+            final @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_AUDIT_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(stockService.getStockAudit(id, page, size));
+    }
+
     /**
      * Creates a new stock based on the provided data.
      * This method uses the HTTP POST operation to create a new stock
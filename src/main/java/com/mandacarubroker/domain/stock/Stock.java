@@ -57,5 +57,17 @@ public class Stock {
         this.price = requestStockDTO.price();
     }
 
+    /**
+     * Constructs a copy of another Stock.
+     *
+     * Stores and caches that keep stocks in memory hand out copies, so callers
+     * modifying a returned Stock do not change the kept one.
+     *
+     * @param stock The Stock to copy.
+     */
+    public Stock(final Stock stock) {
+        this(stock.getId(), stock.getSymbol(), stock.getCompanyName(), stock.getPrice());
+    }
+
 
 }
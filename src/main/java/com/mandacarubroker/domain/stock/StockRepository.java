@@ -3,6 +3,22 @@ package com.mandacarubroker.domain.stock;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface StockRepository  extends JpaRepository<Stock, String> {
+public interface StockRepository  extends JpaRepository<Stock, String>, StockStore {
+
+    @Override
+    List<Stock> findAll();
+
+    @Override
+    Optional<Stock> findById(String id);
+
+    @Override
+    <S extends Stock> S save(S stock);
+
+    @Override
+    void deleteById(String id);
 }
@@ -0,0 +1,56 @@
+package com.mandacarubroker.domain.stock;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage abstraction for stock entities used by the service layer.
+ *
+ * The default implementation is the JPA backed {@link StockRepository}. Other
+ * implementations can be selected through the {@code mandacarubroker.storage.mode}
+ * property.
+ */
+public interface StockStore {
+
+    /**
+     * Retrieves all stored stocks.
+     *
+     * @return A list containing all stocks.
+     */
+    List<Stock> findAll();
+
+    /**
+     * Streams all stored stocks. Stores spread over several databases override
+     * this to yield the stocks of each database as soon as they are read.
+     *
+     * @return A stream over all stocks.
+     */
+    default Stream<Stock> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Retrieves a stock by its unique identifier.
+     *
+     * @param id The unique identifier of the stock.
+     * @return An {@link Optional} containing the stock if found, or an empty {@link Optional}.
+     */
+    Optional<Stock> findById(String id);
+
+    /**
+     * Creates or updates a stock. A unique identifier is assigned when the stock has none.
+     *
+     * @param stock The stock to be saved.
+     * @param <S> The concrete stock type.
+     * @return The saved stock.
+     */
+    <S extends Stock> S save(S stock);
+
+    /**
+     * Deletes the stock with the given identifier, if it exists.
+     *
+     * @param id The unique identifier of the stock to be deleted.
+     */
+    void deleteById(String id);
+}
@@ -1,8 +1,14 @@
 package com.mandacarubroker.service;
 
+import com.mandacarubroker.analytics.StockAnalytics;
+import com.mandacarubroker.analytics.StockAnalyticsDTO;
+import com.mandacarubroker.audit.StockAuditAction;
+import com.mandacarubroker.audit.StockAuditEvent;
+import com.mandacarubroker.audit.StockAuditLog;
+import com.mandacarubroker.cache.StockCache;
 import com.mandacarubroker.domain.stock.RequestStockDTO;
 import com.mandacarubroker.domain.stock.Stock;
-import com.mandacarubroker.domain.stock.StockRepository;
+import com.mandacarubroker.domain.stock.StockStore;
 
 import jakarta.validation.ValidatorFactory;
 import jakarta.validation.Validation;
@@ -11,6 +17,7 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,44 +27,84 @@ import java.util.Set;
 public class StockService {
 
     /**
-     * The repository responsible for data access and manipulation of stock entities.
+     * The store responsible for data access and manipulation of stock entities.
      */
-    private final StockRepository stockRepository;
+    private final StockStore stockStore;
+
+    /**
+     * The streaming analytics updated on every price change.
+     */
+    private final StockAnalytics stockAnalytics;
+
+    /**
+     * The node-local stock cache, invalidated on every write.
+     */
+    private final StockCache stockCache;
+
+    /**
+     * The audit trail recording every write.
+     */
+    private final StockAuditLog stockAuditLog;
+
+    /**
+     * The volume recorded for each price change, since stocks carry no traded volume.
+     * With a constant volume the VWAP of a window equals its simple moving average.
+     */
+    private static final double PRICE_UPDATE_VOLUME = 1.0;
 
     /**
      * Constructs a new instance of the {@link StockService}.
      *
-     * @param stockRepository The repository for stock entities. Must not be null.
+     * @param stockStore The store for stock entities. Must not be null.
+     * @param stockAnalytics The streaming analytics fed with price changes. Must not be null.
+     * @param stockCache The node-local stock cache. Must not be null.
+     * @param stockAuditLog The audit trail of stock writes. Must not be null.
      */
-    public StockService(final StockRepository stockRepository) {
-        this.stockRepository = stockRepository;
+    public StockService(final StockStore stockStore, final StockAnalytics stockAnalytics,
+                        final StockCache stockCache, final StockAuditLog stockAuditLog) {
+        this.stockStore = stockStore;
+        this.stockAnalytics = stockAnalytics;
+        this.stockCache = stockCache;
+        this.stockAuditLog = stockAuditLog;
     }
 
     /**
      * Retrieves a list of all available stocks.
      *
      * This method delegates the retrieval of stock entities to the associated
-     * {@link StockRepository} by invoking its {@code findAll} method. The returned
+     * {@link StockStore} by invoking its {@code streamAll} method, so with a
+     * sharded store the rows of each shard are collected as soon as its query
+     * completes, while slower shards are still being queried. The returned
      * list represents all stocks present in the underlying data storage.
      *
      * @return A list containing all available stocks.
      */
     public List<Stock> getAllStocks() {
-        return stockRepository.findAll();
+        return stockStore.streamAll().toList();
     }
 
     /**
      * Retrieves a stock by its unique identifier.
      *
-     * This method delegates the retrieval of a specific stock entity to the associated
-     * {@link StockRepository} by invoking its {@code findById} method with the provided ID.
+     * This method first looks the stock up in the {@link StockCache}. On a miss it
+     * delegates the retrieval to the associated {@link StockStore} by invoking its
+     * {@code findById} method with the provided ID and caches the result.
      *
      * @param id The unique identifier of the stock to be retrieved.
      * @return An {@link Optional} containing the stock with the specified ID if found,
      *         or an empty {@link Optional} if the stock is not found.
      */
     public Optional<Stock> getStockById(final String id) {
-        return stockRepository.findById(id);
+        Optional<Stock> cachedStock = stockCache.get(id);
+        if (cachedStock.isPresent()) {
+            return cachedStock;
+        }
+
+        long evictionCount = stockCache.evictionCount();
+        Optional<Stock> storedStock = stockStore.findById(id);
+        storedStock.ifPresent(stock -> stockCache.put(stock, evictionCount));
+
+        return storedStock;
     }
 
     /**
@@ -66,40 +113,59 @@ public class StockService {
      * This method instantiates a new {@link Stock} object using the data from the
      * provided {@link RequestStockDTO}. It then validates the data using the
      * {@code validateRequestStockDTO} method and persists the new stock entity
-     * to the associated {@link StockRepository} using the {@code save} method.
+     * to the associated {@link StockStore} using the {@code save} method.
      *
      * @param data The data representing the new stock to be created.
      * @return The created stock entity.
      * @throws ConstraintViolationException If the provided data is not valid.
      */
+    @Transactional
     public Stock createStock(final RequestStockDTO data) {
         Stock newStock = new Stock(data);
         validateRequestStockDTO(data);
-        return stockRepository.save(newStock);
+
+        Stock createdStock = stockStore.save(newStock);
+        stockCache.invalidate(createdStock.getId());
+        stockAnalytics.record(createdStock.getId(), createdStock.getPrice(), PRICE_UPDATE_VOLUME);
+        stockAuditLog.record(StockAuditAction.CREATE, null, createdStock);
+
+        return createdStock;
     }
 
     /**
      * Updates an existing stock with the provided data.
      *
      * This method retrieves the existing stock entity from the associated
-     * {@link StockRepository} using the provided ID. If the stock is found, it
+     * {@link StockStore} using the provided ID. If the stock is found, it
      * updates its attributes with the data from the provided {@link Stock} object.
-     * Persists the updated stock entity back to the repository
-     * using the {@code save} method.
+     * Persists the updated stock entity back to the store
+     * using the {@code save} method. The new price is fed to {@link StockAnalytics}
+     * only if it differs from the previous one.
      *
      * @param id The unique identifier of the stock to be updated.
      * @param updatedStock The data representing the updated stock.
      * @return An {@link Optional} containing the updated stock entity if found,
      *         or an empty {@link Optional} if the stock with the specified ID is not found.
      */
+    @Transactional
     public Optional<Stock> updateStock(final String id, final Stock updatedStock) {
-        return stockRepository.findById(id)
+        return stockStore.findById(id)
                 .map(stock -> {
+                    Stock previousStock = new Stock(stock);
+
                     stock.setSymbol(updatedStock.getSymbol());
                     stock.setCompanyName(updatedStock.getCompanyName());
                     stock.setPrice(updatedStock.getPrice());
 
-                    return stockRepository.save(stock);
+                    Stock savedStock = stockStore.save(stock);
+                    stockCache.invalidate(savedStock.getId());
+                    if (previousStock.getPrice() != savedStock.getPrice()) {
+                        stockAnalytics.record(savedStock.getId(), savedStock.getPrice(),
+                                PRICE_UPDATE_VOLUME);
+                    }
+                    stockAuditLog.record(StockAuditAction.UPDATE, previousStock, savedStock);
+
+                    return savedStock;
                 });
     }
 
@@ -108,12 +174,48 @@ public class StockService {
      *
      * This method removes the stock entity associated with the specified ID from
      * the underlying data storage by invoking the {@code deleteById} method of the
-     * associated {@link StockRepository}.
+     * associated {@link StockStore}. The stock is read first so its last values
+     * can be recorded in the audit trail.
      *
      * @param id The unique identifier of the stock to be deleted.
      */
+    @Transactional
     public void deleteStock(final String id) {
-        stockRepository.deleteById(id);
+        Optional<Stock> deletedStock = stockStore.findById(id);
+
+        stockStore.deleteById(id);
+        stockCache.invalidate(id);
+        stockAnalytics.remove(id);
+        deletedStock.ifPresent(stock -> stockAuditLog.record(StockAuditAction.DELETE, stock, null));
+    }
+
+    /**
+     * Retrieves the streaming analytics of a stock.
+     *
+     * The analytics are maintained by {@link StockAnalytics} from the price
+     * changes made through this service, so no price history is queried.
+     *
+     * @param id The unique identifier of the stock.
+     * @return An {@link Optional} containing the analytics of the stock, or an empty
+     *         {@link Optional} if no price change was recorded for it.
+     */
+    public Optional<StockAnalyticsDTO> getStockAnalytics(final String id) {
+        return stockAnalytics.getAnalytics(id);
+    }
+
+    /**
+     * Retrieves a page of the audit trail of a stock, most recent change first.
+     *
+     * Changes are written to the audit trail asynchronously by {@link StockAuditLog},
+     * so the most recent ones may take a moment to appear.
+     *
+     * @param id The unique identifier of the stock.
+     * @param page The zero-based page number.
+     * @param size The maximum number of changes per page.
+     * @return The changes of the requested page.
+     */
+    public List<StockAuditEvent> getStockAudit(final String id, final int page, final int size) {
+        return stockAuditLog.findByStockId(id, page, size);
     }
 
     /**
@@ -157,16 +259,20 @@ public class StockService {
      * This method first validates the provided {@link RequestStockDTO} using the
      * {@code validateRequestStockDTO} method. If the validation is successful, a
      * new {@link Stock} object is instantiated using the provided data, and it is
-     * then persisted to the associated {@link StockRepository} using the {@code save} method.
+     * then persisted to the associated {@link StockStore} using the {@code save} method.
      *
      * @param data The RequestStockDTO object containing data for creating a new stock.
      * @throws ConstraintViolationException If the validation of the RequestStockDTO fails,
      *                                      containing details of the validation errors.
      */
+    @Transactional
     public void validateAndCreateStock(final RequestStockDTO data) {
         validateRequestStockDTO(data);
 
         Stock newStock = new Stock(data);
-        stockRepository.save(newStock);
+        stockStore.save(newStock);
+        stockCache.invalidate(newStock.getId());
+        stockAnalytics.record(newStock.getId(), newStock.getPrice(), PRICE_UPDATE_VOLUME);
+        stockAuditLog.record(StockAuditAction.CREATE, null, newStock);
     }
 }
@@ -0,0 +1,100 @@
+package com.mandacarubroker.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring mapping keys to shard indexes.
+ *
+ * Each shard is placed on the ring at many virtual points, so keys spread
+ * evenly and changing the number of shards only moves the keys between the
+ * affected neighbours (about {@code 1 / N} of them when adding one shard).
+ */
+final class ConsistentHashRing {
+
+    /**
+     * Number of points each shard takes on the ring.
+     */
+    private static final int VIRTUAL_NODES_PER_SHARD = 128;
+
+    /**
+     * FNV-1a 64-bit offset basis.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64-bit prime.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Shift of the MurmurHash3 64-bit finalizer.
+     */
+    private static final int MIX_SHIFT = 33;
+
+    /**
+     * First multiplier of the MurmurHash3 64-bit finalizer.
+     */
+    private static final long MIX_MULTIPLIER_1 = 0xff51afd7ed558ccdL;
+
+    /**
+     * Second multiplier of the MurmurHash3 64-bit finalizer.
+     */
+    private static final long MIX_MULTIPLIER_2 = 0xc4ceb9fe1a85ec53L;
+
+    /**
+     * Points on the ring, mapped to the index of the shard they belong to.
+     */
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * Builds the ring for the given number of shards.
+     *
+     * @param shardCount The number of shards. Must be positive.
+     */
+    ConsistentHashRing(final int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES_PER_SHARD; node++) {
+                ring.put(hash("shard-" + shard + "#" + node), shard);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the shard owning a key.
+     *
+     * @param key The key, such as a stock id.
+     * @return The owning shard index.
+     */
+    int shardFor(final String key) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    /**
+     * 64-bit FNV-1a followed by the MurmurHash3 finalizer for better avalanche.
+     *
+     * @param key The key to hash.
+     * @return The position of the key on the ring.
+     */
+    private static long hash(final String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER_1;
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER_2;
+        hash ^= hash >>> MIX_SHIFT;
+        return hash;
+    }
+}
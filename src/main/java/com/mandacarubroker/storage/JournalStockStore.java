@@ -0,0 +1,322 @@
+package com.mandacarubroker.storage;
+
+import com.mandacarubroker.domain.stock.Stock;
+import com.mandacarubroker.domain.stock.StockStore;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory {@link StockStore} persisted by a memory-mapped {@link StockJournal}.
+ *
+ * Reads are served from a concurrent map without touching the disk. Every write
+ * is applied to the map and appended to the journal. Calling {@link #snapshot()}
+ * writes the whole map to a snapshot file and empties the journal, so a restart
+ * only has to load the snapshot and replay the writes made after it.
+ *
+ * Whether a write is on disk when it returns depends on the {@link ForcePolicy}.
+ * With {@link ForcePolicy#NONE} acknowledged writes survive a crash of the process
+ * but may be lost if the machine crashes or loses power before the next snapshot.
+ */
+public final class JournalStockStore implements StockStore, Closeable {
+
+    /**
+     * Name of the journal file inside the store directory.
+     */
+    private static final String JOURNAL_FILE = "stocks.journal";
+
+    /**
+     * Name of the snapshot file inside the store directory.
+     */
+    private static final String SNAPSHOT_FILE = "stocks.snapshot";
+
+    /**
+     * When journal writes are forced to disk.
+     *
+     * Under every policy a write is applied to the in-memory map before its
+     * journal record is forced, so concurrent readers can see a write before it
+     * is durable, and keep seeing it if the force then fails and the write
+     * reports an error. Publishing only after the force would let two writes
+     * to the same stock reach the map in a different order than the journal.
+     * Only the writer's acknowledgement waits for the disk.
+     */
+    public enum ForcePolicy {
+
+        /**
+         * Every write forces the journal before returning, one write at a time.
+         */
+        EVERY_WRITE,
+
+        /**
+         * Every write waits until the journal is forced before returning. Writes
+         * arriving while a force is running share the next one.
+         */
+        GROUP_COMMIT,
+
+        /**
+         * Writes never wait for the disk. The journal is only forced when growing,
+         * on snapshots and on close.
+         */
+        NONE
+    }
+
+    /**
+     * The current stocks by unique identifier, the source of every read.
+     */
+    private final Map<String, Stock> stocks = new ConcurrentHashMap<>();
+
+    /**
+     * The directory holding the journal and snapshot files.
+     */
+    private final Path directory;
+
+    /**
+     * The latest complete snapshot.
+     */
+    private final Path snapshotFile;
+
+    /**
+     * The writes made since the latest snapshot.
+     */
+    private final StockJournal journal;
+
+    /**
+     * When writes are forced to disk.
+     */
+    private final ForcePolicy forcePolicy;
+
+    /**
+     * Opens the store in the given directory with the {@link ForcePolicy#GROUP_COMMIT} policy.
+     *
+     * @param directory The directory holding the journal and snapshot files.
+     * @param journalCapacity The initial size of the journal mapping in bytes.
+     * @throws IOException If the files cannot be read or created.
+     */
+    public JournalStockStore(final Path directory, final int journalCapacity) throws IOException {
+        this(directory, journalCapacity, ForcePolicy.GROUP_COMMIT);
+    }
+
+    /**
+     * Opens the store in the given directory, loading the latest snapshot and
+     * replaying the journal written after it.
+     *
+     * @param directory The directory holding the journal and snapshot files.
+     * @param journalCapacity The initial size of the journal mapping in bytes.
+     * @param forcePolicy When writes are forced to disk.
+     * @throws IOException If the files cannot be read or created.
+     */
+    public JournalStockStore(final Path directory, final int journalCapacity,
+                             final ForcePolicy forcePolicy) throws IOException {
+        this.forcePolicy = forcePolicy;
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+
+        loadSnapshot();
+
+        this.journal = new StockJournal(directory.resolve(JOURNAL_FILE), journalCapacity);
+        journal.replay(new StockJournal.Listener() {
+            @Override
+            public void onSave(final Stock stock) {
+                stocks.put(stock.getId(), stock);
+            }
+
+            @Override
+            public void onDelete(final String id) {
+                stocks.remove(id);
+            }
+        });
+    }
+
+    @Override
+    public List<Stock> findAll() {
+        List<Stock> result = new ArrayList<>(stocks.size());
+        for (Stock stock : stocks.values()) {
+            result.add(new Stock(stock));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Stock> findById(final String id) {
+        return Optional.ofNullable(stocks.get(id)).map(Stock::new);
+    }
+
+    @Override
+    public <S extends Stock> S save(final S stock) {
+        long appendedBytes;
+        synchronized (this) {
+            if (stock.getId() == null) {
+                stock.setId(UUID.randomUUID().toString());
+            }
+
+            Stock stored = new Stock(stock);
+            try {
+                journal.appendSave(stored);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            stocks.put(stored.getId(), stored);
+            appendedBytes = afterAppend();
+        }
+        awaitForce(appendedBytes);
+
+        return stock;
+    }
+
+    @Override
+    public void deleteById(final String id) {
+        long appendedBytes;
+        synchronized (this) {
+            if (!stocks.containsKey(id)) {
+                return;
+            }
+
+            try {
+                journal.appendDelete(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            stocks.remove(id);
+            appendedBytes = afterAppend();
+        }
+        awaitForce(appendedBytes);
+    }
+
+    /**
+     * Writes all stocks to the snapshot file and empties the journal.
+     * Writes are blocked while the snapshot is taken; reads are not. Runs
+     * periodically when the store is managed by Spring.
+     *
+     * The snapshot is written to a temporary file, forced, renamed over the
+     * previous snapshot and the directory is forced so the rename itself is
+     * durable. Only then is the journal emptied, so a crash at any point leaves
+     * either the old snapshot with the full journal or the new snapshot.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     */
+    @Scheduled(
+            fixedDelayString = "${mandacarubroker.storage.journal.snapshot-interval-ms:60000}",
+            initialDelayString = "${mandacarubroker.storage.journal.snapshot-interval-ms:60000}"
+    )
+    public synchronized void snapshot() throws IOException {
+        if (journal.position() == 0) {
+            return;
+        }
+
+        Path temporaryFile = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)));
+            output.writeInt(stocks.size());
+            for (Stock stock : stocks.values()) {
+                output.writeUTF(stock.getId());
+                writeNullableUTF(output, stock.getSymbol());
+                writeNullableUTF(output, stock.getCompanyName());
+                output.writeDouble(stock.getPrice());
+            }
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporaryFile, snapshotFile,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+
+        journal.reset();
+    }
+
+    /**
+     * Returns the number of journal bytes written since the last snapshot.
+     *
+     * @return The write position of the journal.
+     */
+    int journalPosition() {
+        return journal.position();
+    }
+
+    /**
+     * Forces the journal to disk and closes it.
+     *
+     * @throws IOException If the journal cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    /**
+     * Forces the journal while still holding the store lock when every write
+     * must be forced on its own. Must be called while holding the store lock.
+     *
+     * @return The number of journal bytes the caller's write must wait for.
+     */
+    private long afterAppend() {
+        long appendedBytes = journal.appendedBytes();
+        if (forcePolicy == ForcePolicy.EVERY_WRITE) {
+            journal.forceUpTo(appendedBytes);
+        }
+        return appendedBytes;
+    }
+
+    /**
+     * Waits for the journal to be forced outside the store lock, so concurrent
+     * writers are covered by a single force.
+     *
+     * @param appendedBytes The number of journal bytes the caller's write needs on disk.
+     */
+    private void awaitForce(final long appendedBytes) {
+        if (forcePolicy == ForcePolicy.GROUP_COMMIT) {
+            journal.forceUpTo(appendedBytes);
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String id = input.readUTF();
+                String symbol = readNullableUTF(input);
+                String companyName = readNullableUTF(input);
+                stocks.put(id, new Stock(id, symbol, companyName, input.readDouble()));
+            }
+        }
+    }
+
+    private static void writeNullableUTF(final DataOutputStream output, final String value)
+            throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(final DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.mandacarubroker.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Replaces the JPA repository with a {@link JournalStockStore} when
+ * {@code mandacarubroker.storage.mode=journal} and snapshots it periodically.
+ */
+@Configuration
+@ConditionalOnProperty(name = "mandacarubroker.storage.mode", havingValue = "journal")
+public class JournalStorageConfiguration {
+
+    /**
+     * Creates the journal backed store, taking precedence over the JPA repository.
+     *
+     * @param directory The directory holding the journal and snapshot files.
+     * @param journalCapacity The initial size of the journal mapping in bytes.
+     * @param forcePolicy When journal writes are forced to disk.
+     * @return The journal backed stock store.
+     * @throws IOException If the journal or snapshot cannot be opened.
+     */
+    @Bean
+    @Primary
+    public JournalStockStore journalStockStore(
+            final @Value("${mandacarubroker.storage.journal.directory:data/journal}")
+            String directory,
+            final @Value("${mandacarubroker.storage.journal.capacity-bytes:67108864}")
+            int journalCapacity,
+            final @Value("${mandacarubroker.storage.journal.force-policy:group-commit}")
+            JournalStockStore.ForcePolicy forcePolicy
+    ) throws IOException {
+        return new JournalStockStore(Path.of(directory), journalCapacity, forcePolicy);
+    }
+}
@@ -0,0 +1,200 @@
+package com.mandacarubroker.storage;
+
+import com.mandacarubroker.domain.stock.Stock;
+import com.mandacarubroker.domain.stock.StockStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link StockStore} that spreads the {@code stock} table over several databases.
+ *
+ * Every stock is owned by exactly one shard, picked by a {@link ConsistentHashRing}
+ * over its id. Single-key operations go to the owning shard only. Listing all
+ * stocks queries every shard in parallel and merges the results.
+ */
+public final class ShardedStockStore implements StockStore, Closeable {
+
+    /**
+     * Maps a {@code stock} row to a {@link Stock}.
+     */
+    static final RowMapper<Stock> STOCK_ROW_MAPPER = (rs, rowNum) -> new Stock(
+            rs.getString("id"),
+            rs.getString("symbol"),
+            rs.getString("company_name"),
+            rs.getDouble("price")
+    );
+
+    /**
+     * The SQL selecting every column of the {@code stock} table.
+     */
+    private static final String SELECT_STOCKS = "SELECT id, symbol, company_name, price FROM stock";
+
+    /**
+     * The shards, in their order on the hash ring.
+     */
+    private final List<JdbcTemplate> shards;
+
+    /**
+     * Maps stock ids to shard indexes.
+     */
+    private final ConsistentHashRing ring;
+
+    /**
+     * Runs the queries sent to every shard, one thread per shard.
+     */
+    private final ExecutorService fanOutExecutor;
+
+    /**
+     * Constructs a store over the given shards. The order of the shards defines
+     * their position on the hash ring and must stay the same across restarts.
+     *
+     * @param dataSources The data sources of the shards, each holding a {@code stock}
+     * table.
+     */
+    public ShardedStockStore(final List<DataSource> dataSources) {
+        this.shards = dataSources.stream().map(JdbcTemplate::new).toList();
+        this.ring = new ConsistentHashRing(dataSources.size());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fanOutExecutor = Executors.newFixedThreadPool(dataSources.size(), runnable -> {
+            Thread thread = new Thread(runnable,
+                    "stock-shard-fan-out-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Streams the stocks of all shards. Every shard is queried in parallel as
+     * soon as this method is called. The stream yields the rows of the shards in
+     * the order their queries complete, so the rows of a fast shard can be
+     * consumed while slower shards are still being queried.
+     *
+     * @return A stream over all stocks.
+     */
+    @Override
+    public Stream<Stock> streamAll() {
+        CompletionService<List<Stock>> queries = new ExecutorCompletionService<>(fanOutExecutor);
+        for (JdbcTemplate shard : shards) {
+            queries.submit(() -> shard.query(SELECT_STOCKS, STOCK_ROW_MAPPER));
+        }
+        return IntStream.range(0, shards.size())
+                .mapToObj(completed -> nextCompleted(queries))
+                .flatMap(List::stream);
+    }
+
+    /**
+     * Collects the stocks of all shards, see {@link #streamAll()}.
+     *
+     * @return A list of all stocks.
+     */
+    @Override
+    public List<Stock> findAll() {
+        return streamAll().collect(Collectors.toList());
+    }
+
+    /**
+     * Reads a stock from the shard owning it.
+     *
+     * @param id The unique identifier of the stock.
+     * @return The stock, or an empty {@link Optional} if the owning shard does not hold it.
+     */
+    @Override
+    public Optional<Stock> findById(final String id) {
+        return findById(shardFor(id), id);
+    }
+
+    /**
+     * Writes a stock to the shard owning it, assigning a new id if it has none.
+     *
+     * @param stock The stock to write.
+     * @param <S> The type of the stock.
+     * @return The written stock.
+     */
+    @Override
+    public <S extends Stock> S save(final S stock) {
+        if (stock.getId() == null) {
+            stock.setId(UUID.randomUUID().toString());
+        }
+        upsert(shardFor(stock.getId()), stock);
+        return stock;
+    }
+
+    /**
+     * Deletes a stock from the shard owning it.
+     *
+     * @param id The unique identifier of the stock.
+     */
+    @Override
+    public void deleteById(final String id) {
+        shardFor(id).update("DELETE FROM stock WHERE id = ?", id);
+    }
+
+    /**
+     * Stops the fan-out threads. The data sources are owned by the caller.
+     */
+    @Override
+    public void close() {
+        fanOutExecutor.shutdown();
+    }
+
+    /**
+     * Inserts a stock into a shard, or updates it if the shard already holds it.
+     *
+     * @param shard The shard to write to.
+     * @param stock The stock to write. Its id must be set.
+     */
+    static void upsert(final JdbcTemplate shard, final Stock stock) {
+        int updated = shard.update(
+                "UPDATE stock SET symbol = ?, company_name = ?, price = ? WHERE id = ?",
+                stock.getSymbol(), stock.getCompanyName(), stock.getPrice(), stock.getId());
+        if (updated == 0) {
+            shard.update("INSERT INTO stock (id, symbol, company_name, price) VALUES (?, ?, ?, ?)",
+                    stock.getId(), stock.getSymbol(), stock.getCompanyName(), stock.getPrice());
+        }
+    }
+
+    private static Optional<Stock> findById(final JdbcTemplate shard, final String id) {
+        return shard.query(SELECT_STOCKS + " WHERE id = ?", STOCK_ROW_MAPPER, id)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Waits for the next shard query to complete.
+     *
+     * @param queries The pending shard queries.
+     * @return The stocks of the shard whose query completed.
+     */
+    private static List<Stock> nextCompleted(final CompletionService<List<Stock>> queries) {
+        try {
+            return queries.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Could not query a shard", e.getCause());
+        }
+    }
+
+    private JdbcTemplate shardFor(final String id) {
+        return shards.get(ring.shardFor(id));
+    }
+}
@@ -0,0 +1,73 @@
+package com.mandacarubroker.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the JPA repository with a {@link ShardedStockStore} when
+ * {@code mandacarubroker.storage.mode=sharded}. Every shard is migrated
+ * with Flyway on startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "mandacarubroker.storage.mode", havingValue = "sharded")
+public class ShardedStorageConfiguration {
+
+    /**
+     * The connection pools of the shards, closed on shutdown.
+     */
+    private final List<DataSource> shardDataSources = new ArrayList<>();
+
+    /**
+     * Creates the sharded store, taking precedence over the JPA repository.
+     *
+     * @param urls The JDBC URLs of the shards. Their order must not change, except through
+     *             {@link StockShardRebalancer}.
+     * @param username The username used to connect to every shard.
+     * @param password The password used to connect to every shard.
+     * @return The sharded stock store.
+     */
+    @Bean
+    @Primary
+    public ShardedStockStore shardedStockStore(
+            final @Value("${mandacarubroker.storage.sharding.urls}") List<String> urls,
+            final @Value("${mandacarubroker.storage.sharding.username:}") String username,
+            final @Value("${mandacarubroker.storage.sharding.password:}") String password
+    ) {
+        for (String url : urls) {
+            DataSource dataSource = DataSourceBuilder.create()
+                    .url(url)
+                    .username(username)
+                    .password(password)
+                    .build();
+            shardDataSources.add(dataSource);
+            Flyway.configure().dataSource(dataSource).load().migrate();
+        }
+        return new ShardedStockStore(shardDataSources);
+    }
+
+    /**
+     * Closes the connection pools of the shards.
+     *
+     * @throws IOException If a pool cannot be closed.
+     */
+    @PreDestroy
+    public void closeShards() throws IOException {
+        for (DataSource dataSource : shardDataSources) {
+            if (dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
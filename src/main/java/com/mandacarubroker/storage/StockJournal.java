@@ -0,0 +1,343 @@
+package com.mandacarubroker.storage;
+
+import com.mandacarubroker.domain.stock.Stock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped, append-only journal of stock mutations.
+ *
+ * Each record is laid out as {@code [int length][int crc32][payload]}, where the
+ * payload starts with an operation byte followed by the stock fields. A record
+ * with length zero marks the end of the journal. Records that are incomplete or
+ * fail the checksum, such as the tail left by a crash in the middle of a write,
+ * end the replay and are overwritten by the next append.
+ *
+ * Appended records reach the operating system immediately but only reach the
+ * disk once {@link #forceUpTo(long)} or {@link #close()} is called, so records
+ * that were not forced survive a crash of the process but not of the machine.
+ */
+class StockJournal implements Closeable {
+
+    /**
+     * Operation byte for a created or updated stock.
+     */
+    private static final byte SAVE = 1;
+
+    /**
+     * Operation byte for a deleted stock.
+     */
+    private static final byte DELETE = 2;
+
+    /**
+     * Size of the length and checksum fields that precede every payload.
+     */
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * Receives the records read back by {@link #replay(Listener)}.
+     */
+    interface Listener {
+
+        /**
+         * Called for every saved stock in the journal.
+         *
+         * @param stock The stock as it was saved.
+         */
+        void onSave(Stock stock);
+
+        /**
+         * Called for every deleted stock in the journal.
+         *
+         * @param id The unique identifier of the deleted stock.
+         */
+        void onDelete(String id);
+    }
+
+    /**
+     * The journal file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Checksum reused for every record. Only used by replay and appends.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Serializes forces so concurrent callers share one.
+     */
+    private final Object forceLock = new Object();
+
+    /**
+     * The current mapping of the file, replaced when the journal grows.
+     */
+    private volatile MappedByteBuffer buffer;
+
+    /**
+     * Offset of the end marker, right after the last valid record.
+     */
+    private volatile int position;
+
+    /**
+     * Total number of bytes appended since the journal was opened, never reset.
+     * Only written by appends, which callers must serialize.
+     */
+    private volatile long appendedBytes;
+
+    /**
+     * Value of {@link #appendedBytes} covered by the last force. Only written
+     * while holding {@link #forceLock}.
+     */
+    private volatile long forcedBytes;
+
+    /**
+     * Opens or creates the journal file and maps it into memory.
+     *
+     * @param file The journal file.
+     * @param initialCapacity The initial size of the mapping in bytes. The mapping grows as needed.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    StockJournal(final Path file, final int initialCapacity) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) Math.max(channel.size(), initialCapacity);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * Reads every valid record from the start of the journal and positions the
+     * journal right after the last one. Any bytes after that point are cleared.
+     *
+     * @param listener The listener receiving the replayed records.
+     */
+    void replay(final Listener listener) {
+        int offset = 0;
+
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+
+            ByteBuffer payload = buffer.slice(offset + HEADER_BYTES, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                break;
+            }
+
+            try {
+                readRecord(payload, listener);
+            } catch (BufferUnderflowException | IllegalArgumentException
+                     | NegativeArraySizeException e) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+
+        position = offset;
+        clear(position, buffer.capacity());
+    }
+
+    /**
+     * Appends a saved stock to the journal.
+     *
+     * @param stock The stock that was saved.
+     * @throws IOException If the mapping has to grow and cannot be extended.
+     */
+    void appendSave(final Stock stock) throws IOException {
+        byte[] id = encode(stock.getId());
+        byte[] symbol = encode(stock.getSymbol());
+        byte[] companyName = encode(stock.getCompanyName());
+
+        int length = 1 + encodedLength(id) + encodedLength(symbol) + encodedLength(companyName)
+                + Double.BYTES;
+        ByteBuffer payload = reserve(length);
+        payload.put(SAVE);
+        putString(payload, id);
+        putString(payload, symbol);
+        putString(payload, companyName);
+        payload.putDouble(stock.getPrice());
+        commit(length);
+    }
+
+    /**
+     * Appends a deleted stock to the journal.
+     *
+     * @param id The unique identifier of the deleted stock.
+     * @throws IOException If the mapping has to grow and cannot be extended.
+     */
+    void appendDelete(final String id) throws IOException {
+        byte[] encodedId = encode(id);
+
+        int length = 1 + encodedLength(encodedId);
+        ByteBuffer payload = reserve(length);
+        payload.put(DELETE);
+        putString(payload, encodedId);
+        commit(length);
+    }
+
+    /**
+     * Discards all records, typically after their effects were captured in a snapshot.
+     */
+    void reset() {
+        clear(0, position);
+        position = 0;
+        buffer.force();
+    }
+
+    /**
+     * Returns the total number of bytes appended since the journal was opened,
+     * to be passed to {@link #forceUpTo(long)}.
+     *
+     * @return The number of bytes appended so far.
+     */
+    long appendedBytes() {
+        return appendedBytes;
+    }
+
+    /**
+     * Forces the journal to disk unless the given number of appended bytes is
+     * already durable. Can be called without holding the lock used for appends,
+     * so writers waiting here while another force runs are all covered by the
+     * next one (group commit).
+     *
+     * @param bytes The value of {@link #appendedBytes()} that must be durable.
+     */
+    void forceUpTo(final long bytes) {
+        if (forcedBytes >= bytes) {
+            return;
+        }
+
+        synchronized (forceLock) {
+            if (forcedBytes >= bytes) {
+                return;
+            }
+            long target = appendedBytes;
+            buffer.force();
+            forcedBytes = target;
+        }
+    }
+
+    /**
+     * Returns the number of bytes currently used by valid records.
+     *
+     * @return The write position of the journal.
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Flushes the mapped records to the underlying file and closes it.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private ByteBuffer reserve(final int length) throws IOException {
+        int required = position + HEADER_BYTES + length + HEADER_BYTES;
+        if (required > buffer.capacity()) {
+            long capacity = Math.max((long) buffer.capacity() * 2, required);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Stock journal is full, take a snapshot to compact it");
+            }
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        return buffer.slice(position + HEADER_BYTES, length);
+    }
+
+    /**
+     * Writes the checksum, then the length, so a record only becomes visible to
+     * {@link #replay(Listener)} once its payload is complete.
+     *
+     * @param length The length of the payload written by {@link #reserve(int)}.
+     */
+    private void commit(final int length) {
+        crc.reset();
+        crc.update(buffer.slice(position + HEADER_BYTES, length));
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, length);
+        position += HEADER_BYTES + length;
+        appendedBytes += HEADER_BYTES + length;
+    }
+
+    /**
+     * Zeroes a range of the mapping, skipping bytes that are already zero so
+     * untouched pages are not dirtied.
+     *
+     * @param from The first offset to clear.
+     * @param to The offset after the last one to clear.
+     */
+    private void clear(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    private static void readRecord(final ByteBuffer payload, final Listener listener) {
+        byte operation = payload.get();
+
+        if (operation == SAVE) {
+            String id = getString(payload);
+            String symbol = getString(payload);
+            String companyName = getString(payload);
+            listener.onSave(new Stock(id, symbol, companyName, payload.getDouble()));
+        } else if (operation == DELETE) {
+            listener.onDelete(getString(payload));
+        } else {
+            throw new IllegalArgumentException("Unknown journal operation " + operation);
+        }
+    }
+
+    private static byte[] encode(final String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Stock field is too long to be journaled");
+        }
+        return bytes;
+    }
+
+    private static int encodedLength(final byte[] bytes) {
+        return Short.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(final ByteBuffer payload, final byte[] bytes) {
+        if (bytes == null) {
+            payload.putShort((short) -1);
+            return;
+        }
+        payload.putShort((short) bytes.length);
+        payload.put(bytes);
+    }
+
+    private static String getString(final ByteBuffer payload) {
+        short length = payload.getShort();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,107 @@
+package com.mandacarubroker.storage;
+
+import com.mandacarubroker.domain.stock.Stock;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves stocks between shards after the number of shards changes.
+ *
+ * Every stock whose owner on the new {@link ConsistentHashRing} differs from the
+ * shard holding it is copied to its new owner and then deleted from the old
+ * shard, so the process can be re-run safely if interrupted. Shards that are
+ * kept must be passed as the same {@link DataSource} instance, at the same
+ * position, in both lists. Writes should be stopped while rebalancing.
+ *
+ * From the command line:
+ * {@code java -cp ... com.mandacarubroker.storage.StockShardRebalancer
+ * --from=jdbc:url1,jdbc:url2 --to=jdbc:url1,jdbc:url2,jdbc:url3 --username=... --password=...}
+ */
+public final class StockShardRebalancer {
+
+    private StockShardRebalancer() {
+    }
+
+    /**
+     * Moves every stock to the shard owning it in the new layout.
+     *
+     * @param oldShards The shards in their current order.
+     * @param newShards The shards in their new order.
+     * @return The number of stocks moved.
+     */
+    public static int rebalance(final List<DataSource> oldShards,
+                                final List<DataSource> newShards) {
+        ConsistentHashRing newRing = new ConsistentHashRing(newShards.size());
+        int moved = 0;
+
+        for (DataSource oldShard : oldShards) {
+            JdbcTemplate source = new JdbcTemplate(oldShard);
+            List<Stock> misplacedStocks = new ArrayList<>();
+
+            source.query("SELECT id, symbol, company_name, price FROM stock", rs -> {
+                Stock stock = ShardedStockStore.STOCK_ROW_MAPPER.mapRow(rs, 0);
+                if (newShards.get(newRing.shardFor(stock.getId())) != oldShard) {
+                    misplacedStocks.add(stock);
+                }
+            });
+
+            for (Stock stock : misplacedStocks) {
+                DataSource newShard = newShards.get(newRing.shardFor(stock.getId()));
+                ShardedStockStore.upsert(new JdbcTemplate(newShard), stock);
+                source.update("DELETE FROM stock WHERE id = ?", stock.getId());
+                moved++;
+            }
+        }
+
+        return moved;
+    }
+
+    /**
+     * Rebalances the shards given as JDBC URLs, migrating all of them with Flyway first.
+     * @param args {@code --from=<urls>}, {@code --to=<urls>}, {@code --username=...}
+     * and {@code --password=...}.
+     */
+    public static void main(final String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        if (!options.containsKey("from") || !options.containsKey("to")) {
+            throw new IllegalArgumentException(
+                    "Usage: --from=<jdbc urls> --to=<jdbc urls> [--username=] [--password=]");
+        }
+
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        List<DataSource> oldShards = new ArrayList<>();
+        List<DataSource> newShards = new ArrayList<>();
+        for (String url : options.get("from").split(",")) {
+            oldShards.add(dataSources.computeIfAbsent(url.trim(), key -> dataSource(key, options)));
+        }
+        for (String url : options.get("to").split(",")) {
+            newShards.add(dataSources.computeIfAbsent(url.trim(), key -> dataSource(key, options)));
+        }
+
+        for (DataSource dataSource : dataSources.values()) {
+            Flyway.configure().dataSource(dataSource).load().migrate();
+        }
+
+        int moved = rebalance(oldShards, newShards);
+        System.out.printf("Moved %d stocks from %d to %d shards%n",
+                moved, oldShards.size(), newShards.size());
+    }
+
+    private static DataSource dataSource(final String url, final Map<String, String> options) {
+        return new DriverManagerDataSource(url,
+                options.getOrDefault("username", ""), options.getOrDefault("password", ""));
+    }
+}
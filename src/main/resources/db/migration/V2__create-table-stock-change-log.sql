@@ -0,0 +1,7 @@
+CREATE TABLE stock_change_log(
+                      version BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                      stock_id VARCHAR NOT NULL,
+                      changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_stock_change_log_changed_at ON stock_change_log(changed_at);
@@ -0,0 +1,11 @@
+CREATE TABLE stock_audit(
+                      id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                      stock_id VARCHAR NOT NULL,
+                      action VARCHAR NOT NULL,
+                      caller VARCHAR NOT NULL,
+                      occurred_at TIMESTAMP NOT NULL,
+                      before_value VARCHAR,
+                      after_value VARCHAR
+);
+
+CREATE INDEX idx_stock_audit_stock_id_occurred_at ON stock_audit(stock_id, occurred_at, id);
@@ -0,0 +1,70 @@
+package com.mandacarubroker.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StockAnalyticsTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void itShouldComputeAveragesOverPartiallyFilledWindow() {
+        StockAnalytics stockAnalytics = new StockAnalytics(new int[] {3});
+
+        stockAnalytics.record("RPM3", 10.0, 1.0);
+        stockAnalytics.record("RPM3", 20.0, 3.0);
+
+        StockAnalyticsDTO.Window window = stockAnalytics.getAnalytics("RPM3").get().windows().get(0);
+
+        assertEquals(2, window.count());
+        assertEquals(15.0, window.sma(), DELTA);
+        assertEquals(17.5, window.vwap(), DELTA);
+        assertEquals(15.0, window.ema(), DELTA);
+    }
+
+    @Test
+    void itShouldEvictOldestUpdateWhenWindowIsFull() {
+        StockAnalytics stockAnalytics = new StockAnalytics(new int[] {2, 4});
+
+        for (double price : new double[] {10.0, 20.0, 30.0, 40.0, 50.0}) {
+            stockAnalytics.record("RPM3", price, 1.0);
+        }
+
+        StockAnalyticsDTO analytics = stockAnalytics.getAnalytics("RPM3").get();
+
+        assertEquals(2, analytics.windows().get(0).count());
+        assertEquals(45.0, analytics.windows().get(0).sma(), DELTA);
+        assertEquals(4, analytics.windows().get(1).count());
+        assertEquals(35.0, analytics.windows().get(1).sma(), DELTA);
+    }
+
+    @Test
+    void itShouldComputeExponentialMovingAverage() {
+        StockAnalytics stockAnalytics = new StockAnalytics(new int[] {3});
+
+        stockAnalytics.record("RPM3", 10.0, 1.0);
+        stockAnalytics.record("RPM3", 20.0, 1.0);
+        stockAnalytics.record("RPM3", 40.0, 1.0);
+
+        assertEquals(27.5, stockAnalytics.getAnalytics("RPM3").get().windows().get(0).ema(), DELTA);
+    }
+
+    @Test
+    void itShouldForgetRemovedStock() {
+        StockAnalytics stockAnalytics = new StockAnalytics(new int[] {3});
+
+        stockAnalytics.record("RPM3", 10.0, 1.0);
+        stockAnalytics.remove("RPM3");
+
+        assertEquals(Optional.empty(), stockAnalytics.getAnalytics("RPM3"));
+    }
+
+    @Test
+    void itShouldRejectNonPositiveWindowSize() {
+        assertThrows(IllegalArgumentException.class, () -> new StockAnalytics(new int[] {5, 0}));
+    }
+}
@@ -0,0 +1,245 @@
+package com.mandacarubroker.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mandacarubroker.domain.stock.RequestStockDTO;
+import com.mandacarubroker.domain.stock.Stock;
+import com.mandacarubroker.service.StockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class StockAuditLogTest {
+
+    private static final int POLL_INTERVAL_MS = 50;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockAuditLog stockAuditLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void clearTables() {
+        jdbcTemplate.execute("DELETE FROM stock");
+        jdbcTemplate.execute("DELETE FROM stock_audit");
+    }
+
+    private int countAuditRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_audit", Integer.class);
+    }
+
+    @Test
+    void itShouldRecordCreateUpdateAndDelete() {
+        Stock stock = stockService.createStock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45));
+        stockService.updateStock(stock.getId(), new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 95.10)));
+        stockService.deleteStock(stock.getId());
+        stockAuditLog.flush();
+
+        List<StockAuditEvent> events = stockService.getStockAudit(stock.getId(), 0, 10);
+
+        assertEquals(List.of(StockAuditAction.DELETE, StockAuditAction.UPDATE, StockAuditAction.CREATE),
+                events.stream().map(StockAuditEvent::action).toList());
+        assertEquals(95.10, events.get(0).before().getPrice());
+        assertNull(events.get(0).after());
+        assertEquals(90.45, events.get(1).before().getPrice());
+        assertEquals(95.10, events.get(1).after().getPrice());
+        assertNull(events.get(2).before());
+        assertEquals(StockAuditLog.SYSTEM_CALLER, events.get(2).caller());
+    }
+
+    @Test
+    void itShouldPaginateMostRecentFirst() {
+        Stock stock = stockService.createStock(new RequestStockDTO("ALL3", "ALLOS", 100.0));
+        for (int i = 1; i <= 4; i++) {
+            stockService.updateStock(stock.getId(), new Stock(new RequestStockDTO("ALL3", "ALLOS", 100.0 + i)));
+        }
+        stockAuditLog.flush();
+
+        List<StockAuditEvent> firstPage = stockService.getStockAudit(stock.getId(), 0, 2);
+        List<StockAuditEvent> lastPage = stockService.getStockAudit(stock.getId(), 2, 2);
+
+        assertEquals(104.0, firstPage.get(0).after().getPrice());
+        assertEquals(103.0, firstPage.get(1).after().getPrice());
+        assertEquals(1, lastPage.size());
+        assertEquals(StockAuditAction.CREATE, lastPage.get(0).action());
+    }
+
+    @Test
+    void itShouldWriteSynchronouslyWhenWriterIsNotRunning() {
+        StockAuditLog auditLog = new StockAuditLog(jdbcTemplate, objectMapper, 1, 500, POLL_INTERVAL_MS);
+
+        Stock stock = new Stock("stock-1", "AZL4", "AZUL", 230.20);
+        auditLog.record(StockAuditAction.UPDATE, stock, stock);
+        auditLog.record(StockAuditAction.UPDATE, stock, stock);
+
+        assertEquals(2, countAuditRows());
+    }
+
+    @Test
+    void itShouldWriteEveryEventWhenQueueOverflows() {
+        StockAuditLog auditLog = new StockAuditLog(jdbcTemplate, objectMapper, 1, 500, POLL_INTERVAL_MS);
+        auditLog.start();
+
+        Stock stock = new Stock("stock-1", "AZL4", "AZUL", 230.20);
+        for (int i = 0; i < 100; i++) {
+            auditLog.record(StockAuditAction.UPDATE, stock, stock);
+        }
+        auditLog.stop();
+
+        assertEquals(100, countAuditRows());
+    }
+
+    @Test
+    void itShouldWriteQueuedEventsOnStop() {
+        StockAuditLog auditLog = new StockAuditLog(jdbcTemplate, objectMapper, 100, 500, POLL_INTERVAL_MS);
+        auditLog.start();
+
+        Stock stock = new Stock("stock-1", "AZL4", "AZUL", 230.20);
+        for (int i = 0; i < 10; i++) {
+            auditLog.record(StockAuditAction.UPDATE, stock, stock);
+        }
+        auditLog.stop();
+
+        assertEquals(10, countAuditRows());
+        assertEquals(10, auditLog.findByStockId("stock-1", 0, 20).size());
+    }
+
+    @Test
+    void itShouldRetryFailedBatchUntilDatabaseRecovers() throws InterruptedException {
+        FailingJdbcTemplate failingJdbcTemplate = new FailingJdbcTemplate(jdbcTemplate);
+        StockAuditLog auditLog = new StockAuditLog(failingJdbcTemplate, objectMapper, 100, 500, POLL_INTERVAL_MS);
+        auditLog.start();
+        try {
+            Stock stock = new Stock("stock-1", "AZL4", "AZUL", 230.20);
+            for (int i = 0; i < 10; i++) {
+                auditLog.record(StockAuditAction.UPDATE, stock, stock);
+            }
+
+            Thread.sleep(500);
+            assertTrue(failingJdbcTemplate.failedWrites.get() > 1);
+            assertEquals(0, countAuditRows());
+
+            failingJdbcTemplate.failing = false;
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (countAuditRows() < 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+
+            assertEquals(10, countAuditRows());
+        } finally {
+            auditLog.stop();
+        }
+    }
+
+    @Test
+    void itShouldKeepRetryingPendingEventsOnStop() throws InterruptedException {
+        FailingJdbcTemplate failingJdbcTemplate = new FailingJdbcTemplate(jdbcTemplate);
+        StockAuditLog auditLog = new StockAuditLog(failingJdbcTemplate, objectMapper, 100, 500, POLL_INTERVAL_MS);
+        auditLog.start();
+
+        Stock stock = new Stock("stock-1", "AZL4", "AZUL", 230.20);
+        for (int i = 0; i < 10; i++) {
+            auditLog.record(StockAuditAction.UPDATE, stock, stock);
+        }
+        Thread.sleep(200);
+
+        Thread recovery = new Thread(() -> {
+            sleep(500);
+            failingJdbcTemplate.failing = false;
+        });
+        recovery.start();
+        auditLog.stop();
+        recovery.join();
+
+        assertEquals(10, countAuditRows());
+    }
+
+    @Test
+    void itShouldWriteOtherEventsWhenOneEventIsRejected() {
+        RejectingJdbcTemplate rejectingJdbcTemplate = new RejectingJdbcTemplate(jdbcTemplate, "stock-2");
+        StockAuditLog auditLog = new StockAuditLog(rejectingJdbcTemplate, objectMapper, 100, 500, POLL_INTERVAL_MS);
+        auditLog.start();
+
+        for (int i = 1; i <= 3; i++) {
+            Stock stock = new Stock("stock-" + i, "AZL4", "AZUL", 230.20);
+            auditLog.record(StockAuditAction.UPDATE, stock, stock);
+        }
+        auditLog.stop();
+
+        assertEquals(2, countAuditRows());
+        assertEquals(0, auditLog.findByStockId("stock-2", 0, 20).size());
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fails every update with a transient error, as when the database is unreachable,
+     * until {@link #failing} is cleared.
+     */
+    private static final class FailingJdbcTemplate extends JdbcTemplate {
+
+        private final AtomicInteger failedWrites = new AtomicInteger();
+        private volatile boolean failing = true;
+
+        FailingJdbcTemplate(final JdbcTemplate delegate) {
+            super(delegate.getDataSource());
+        }
+
+        @Override
+        public int update(final String sql, final Object... args) {
+            if (failing) {
+                failedWrites.incrementAndGet();
+                throw new TransientDataAccessResourceException("Database unavailable");
+            }
+            return super.update(sql, args);
+        }
+    }
+
+    /**
+     * Rejects every insert containing the given stock id, like a constraint violation.
+     */
+    private static final class RejectingJdbcTemplate extends JdbcTemplate {
+
+        private final String rejectedStockId;
+
+        RejectingJdbcTemplate(final JdbcTemplate delegate, final String rejectedStockId) {
+            super(delegate.getDataSource());
+            this.rejectedStockId = rejectedStockId;
+        }
+
+        @Override
+        public int update(final String sql, final Object... args) {
+            if (Arrays.asList(args).contains(rejectedStockId)) {
+                throw new DataIntegrityViolationException("Rejected " + rejectedStockId);
+            }
+            return super.update(sql, args);
+        }
+    }
+}
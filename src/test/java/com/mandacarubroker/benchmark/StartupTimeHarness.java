@@ -0,0 +1,143 @@
+package com.mandacarubroker.benchmark;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time from launching {@code MandacarubrokerApplication} to its first
+ * successful {@code GET /stocks}.
+ *
+ * Build with {@code mvn -Pfast-startup package}, then run
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StartupTimeHarness -Dbenchmark.args="--mode=fast --runs=5"}.
+ * Mode {@code baseline} starts the application from the same classpath without the
+ * CDS archive and AOT classes. Any other argument starting with {@code --} is passed
+ * to the application, e.g. {@code --spring.datasource.url=...}. H2 is appended to the
+ * classpath, so the application can be pointed at an H2 database through the same
+ * {@code SPRING_DATASOURCE_*} environment variables used for the build.
+ */
+public final class StartupTimeHarness {
+
+    private static final String MAIN_CLASS = "com.mandacarubroker.MandacarubrokerApplication";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    private StartupTimeHarness() {
+    }
+
+    /**
+     * Runs the measurement.
+     * @param args {@code --mode=baseline|fast}, {@code --runs=N} and application arguments.
+     * @throws Exception If the application cannot be launched or does not start in time.
+     */
+    public static void main(final String[] args) throws Exception {
+        String mode = "fast";
+        int runs = 5;
+        List<String> applicationArgs = new ArrayList<>();
+
+        for (String arg : String.join(" ", args).trim().split("\\s+")) {
+            if (arg.startsWith("--mode=")) {
+                mode = arg.substring("--mode=".length());
+            } else if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(arg.substring("--runs=".length()));
+            } else if (!arg.isEmpty()) {
+                applicationArgs.add(arg);
+            }
+        }
+
+        Path target = Path.of("target");
+        String classpath = findApplicationJar(target) + System.getProperty("path.separator")
+                + Files.readString(target.resolve("classpath.txt")).trim();
+        if (Files.exists(target.resolve("h2-classpath.txt"))) {
+            classpath += System.getProperty("path.separator") + Files.readString(target.resolve("h2-classpath.txt")).trim();
+        }
+
+        long[] startupMillis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            startupMillis[run] = measure(mode, classpath, target, applicationArgs);
+            System.out.printf("run %d: %d ms%n", run + 1, startupMillis[run]);
+        }
+
+        Arrays.sort(startupMillis);
+        System.out.printf("mode=%s runs=%d min=%d ms median=%d ms max=%d ms%n",
+                mode, runs, startupMillis[0], startupMillis[runs / 2], startupMillis[runs - 1]);
+    }
+
+    private static long measure(final String mode, final String classpath, final Path target,
+                                final List<String> applicationArgs) throws Exception {
+        int port = freePort();
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (mode.equals("fast")) {
+            command.add("-XX:SharedArchiveFile=" + target.resolve("app.jsa"));
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.add("-cp");
+        command.add(classpath);
+        command.add(MAIN_CLASS);
+        command.add("--server.port=" + port);
+        command.addAll(applicationArgs);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/stocks")).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(target.resolve("startup-harness.log").toFile())
+                .start();
+
+        try {
+            while (System.nanoTime() - start < STARTUP_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue()
+                            + ", see target/startup-harness.log");
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet.
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            throw new IllegalStateException("Application did not answer GET /stocks within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Finds the thin application jar built by the fast-startup profile. The CDS
+     * archive is only valid for the classpath it was created with.
+     */
+    private static Path findApplicationJar(final Path target) throws IOException {
+        try (Stream<Path> files = Files.list(target)) {
+            return files
+                    .filter(file -> file.getFileName().toString().matches("mandacarubroker-.*(?<!-exec)\\.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Build with mvn -Pfast-startup package first"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.mandacarubroker.benchmark;
+
+import com.mandacarubroker.analytics.StockAnalytics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures price updates per second folded into {@link StockAnalytics} across many instruments.
+ *
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StockAnalyticsBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class StockAnalyticsBenchmark {
+
+    @Param({"10000"})
+    private int instrumentCount;
+
+    private StockAnalytics stockAnalytics;
+    private String[] stockIds;
+
+    @Setup
+    public void setup() {
+        stockAnalytics = new StockAnalytics(new int[] {5, 20, 50});
+        stockIds = new String[instrumentCount];
+
+        for (int i = 0; i < instrumentCount; i++) {
+            stockIds[i] = "STOCK-" + i;
+            stockAnalytics.record(stockIds[i], 100.0, 1.0);
+        }
+    }
+
+    /**
+     * Per-thread cursor over the instruments, so each thread spreads its updates over all of them.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+        private double price = 100.0;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void updateSingleThread(final Cursor cursor) {
+        update(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateFourThreads(final Cursor cursor) {
+        update(cursor);
+    }
+
+    private void update(final Cursor cursor) {
+        int index = cursor.index;
+        cursor.index = index + 1 == stockIds.length ? 0 : index + 1;
+        cursor.price = cursor.price >= 200.0 ? 100.0 : cursor.price + 0.01;
+
+        stockAnalytics.record(stockIds[index], cursor.price, 1.0);
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args Command-line arguments (ignored).
+     * @throws RunnerException If the benchmark run fails.
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StockAnalyticsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
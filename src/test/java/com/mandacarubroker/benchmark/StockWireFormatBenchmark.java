@@ -0,0 +1,132 @@
+package com.mandacarubroker.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.mandacarubroker.domain.stock.Stock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and CBOR encodings of the {@code GET /stocks} payload.
+ *
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StockWireFormatBenchmark}.
+ * The payload sizes are printed before the throughput measurements start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockWireFormatBenchmark {
+
+    private static final TypeReference<List<Stock>> STOCK_LIST = new TypeReference<>() { };
+
+    @Param({"100", "10000"})
+    private int stockCount;
+
+    private List<Stock> stocks;
+
+    private ObjectWriter jsonWriter;
+    private ObjectWriter cborWriter;
+    private ObjectReader jsonReader;
+    private ObjectReader cborReader;
+
+    private byte[] jsonPayload;
+    private byte[] cborPayload;
+
+    /**
+     * Discards everything written to it, so encoding is measured without buffer copies.
+     */
+    private static final OutputStream NULL_STREAM = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setup() throws IOException {
+        stocks = createStocks(stockCount);
+
+        ObjectMapper jsonMapper = new ObjectMapper();
+        CBORMapper cborMapper = new CBORMapper();
+
+        jsonWriter = jsonMapper.writerFor(STOCK_LIST).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        cborWriter = cborMapper.writerFor(STOCK_LIST).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        jsonReader = jsonMapper.readerFor(STOCK_LIST);
+        cborReader = cborMapper.readerFor(STOCK_LIST);
+
+        jsonPayload = jsonWriter.writeValueAsBytes(stocks);
+        cborPayload = cborWriter.writeValueAsBytes(stocks);
+    }
+
+    @Benchmark
+    public void encodeJson() throws IOException {
+        jsonWriter.writeValue(NULL_STREAM, stocks);
+    }
+
+    @Benchmark
+    public void encodeCbor() throws IOException {
+        cborWriter.writeValue(NULL_STREAM, stocks);
+    }
+
+    @Benchmark
+    public List<Stock> decodeJson() throws IOException {
+        return jsonReader.readValue(jsonPayload);
+    }
+
+    @Benchmark
+    public List<Stock> decodeCbor() throws IOException {
+        return cborReader.readValue(cborPayload);
+    }
+
+    private static List<Stock> createStocks(final int count) {
+        List<Stock> stocks = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            stocks.add(new Stock(UUID.randomUUID().toString(), "STK" + (i % 10), "COMPANY " + i, 10.0 + i * 0.01));
+        }
+
+        return stocks;
+    }
+
+    /**
+     * Prints the payload sizes for both encodings and then runs the throughput benchmarks.
+     * @param args Command-line arguments (ignored).
+     * @throws IOException If the payloads cannot be encoded.
+     * @throws RunnerException If the benchmark run fails.
+     */
+    public static void main(final String[] args) throws IOException, RunnerException {
+        for (int count : new int[] {100, 10000}) {
+            List<Stock> stocks = createStocks(count);
+            int jsonSize = new ObjectMapper().writerFor(STOCK_LIST).writeValueAsBytes(stocks).length;
+            int cborSize = new CBORMapper().writerFor(STOCK_LIST).writeValueAsBytes(stocks).length;
+
+            System.out.printf("%d stocks: json=%d bytes, cbor=%d bytes (%.1f%%)%n",
+                    count, jsonSize, cborSize, 100.0 * cborSize / jsonSize);
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(StockWireFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
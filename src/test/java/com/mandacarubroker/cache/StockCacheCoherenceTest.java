@@ -0,0 +1,151 @@
+package com.mandacarubroker.cache;
+
+import com.mandacarubroker.MandacarubrokerApplication;
+import com.mandacarubroker.domain.stock.RequestStockDTO;
+import com.mandacarubroker.domain.stock.Stock;
+import com.mandacarubroker.service.StockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StockCacheCoherenceTest {
+
+    private ConfigurableApplicationContext firstNode;
+    private ConfigurableApplicationContext secondNode;
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(MandacarubrokerApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:coherence;DB_CLOSE_DELAY=-1",
+                        "--spring.devtools.restart.enabled=false",
+                        "--mandacarubroker.cache.enabled=true",
+                        "--mandacarubroker.cache.change-log.poll-interval-ms=3600000",
+                        "--mandacarubroker.cache.change-log.compaction-interval-ms=3600000"
+                );
+    }
+
+    @BeforeEach
+    public void startNodes() {
+        firstNode = startNode();
+        secondNode = startNode();
+
+        firstNode.getBean(StockCache.class).poll();
+        secondNode.getBean(StockCache.class).poll();
+    }
+
+    @AfterEach
+    public void stopNodes() {
+        firstNode.getBean(JdbcTemplate.class).execute("DELETE FROM stock");
+        firstNode.getBean(JdbcTemplate.class).execute("DELETE FROM stock_change_log");
+        secondNode.close();
+        firstNode.close();
+    }
+
+    @Test
+    void itShouldEvictStockUpdatedOnAnotherNode() {
+        StockService firstService = firstNode.getBean(StockService.class);
+        StockService secondService = secondNode.getBean(StockService.class);
+
+        Stock stock = firstService.createStock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45));
+        assertEquals(90.45, firstService.getStockById(stock.getId()).get().getPrice());
+
+        secondService.updateStock(stock.getId(), new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 95.10)));
+
+        assertEquals(90.45, firstService.getStockById(stock.getId()).get().getPrice());
+
+        firstNode.getBean(StockCache.class).poll();
+
+        assertEquals(95.10, firstService.getStockById(stock.getId()).get().getPrice());
+    }
+
+    @Test
+    void itShouldEvictStockDeletedOnAnotherNode() {
+        StockService firstService = firstNode.getBean(StockService.class);
+        StockService secondService = secondNode.getBean(StockService.class);
+
+        Stock stock = firstService.createStock(new RequestStockDTO("ALL3", "ALLOS", 121.60));
+        firstService.getStockById(stock.getId());
+
+        secondService.deleteStock(stock.getId());
+        firstNode.getBean(StockCache.class).poll();
+
+        assertEquals(Optional.empty(), firstService.getStockById(stock.getId()));
+    }
+
+    @Test
+    void itShouldCompactChangeLog() {
+        StockService firstService = firstNode.getBean(StockService.class);
+        JdbcTemplate jdbcTemplate = firstNode.getBean(JdbcTemplate.class);
+
+        firstService.createStock(new RequestStockDTO("AZL4", "AZUL", 230.20));
+        jdbcTemplate.update("UPDATE stock_change_log SET changed_at = TIMESTAMP '2000-01-01 00:00:00'");
+
+        firstNode.getBean(StockCache.class).compact();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_change_log", Integer.class));
+    }
+
+    @Test
+    void itShouldEvictStockChangedByLateCommittedVersion() {
+        StockService firstService = firstNode.getBean(StockService.class);
+        JdbcTemplate jdbcTemplate = firstNode.getBean(JdbcTemplate.class);
+        StockCache firstCache = firstNode.getBean(StockCache.class);
+
+        Stock stock = firstService.createStock(new RequestStockDTO("VAL3", "VALE", 61.30));
+        firstCache.poll();
+        long version = jdbcTemplate.queryForObject("SELECT MAX(version) FROM stock_change_log", Long.class);
+
+        jdbcTemplate.update("INSERT INTO stock_change_log (version, stock_id) VALUES (?, ?)", version + 2, "other");
+        firstCache.poll();
+        firstService.getStockById(stock.getId());
+
+        jdbcTemplate.update("UPDATE stock SET price = ? WHERE id = ?", 62.00, stock.getId());
+        jdbcTemplate.update("INSERT INTO stock_change_log (version, stock_id) VALUES (?, ?)", version + 1, stock.getId());
+        firstCache.poll();
+
+        assertEquals(62.00, firstService.getStockById(stock.getId()).get().getPrice());
+    }
+
+    @Test
+    void itShouldExpireCachedStocksAfterRetention() throws InterruptedException {
+        StockCache cache = new StockCache(firstNode.getBean(JdbcTemplate.class), true, Duration.ofMillis(100));
+        cache.poll();
+
+        Stock stock = new Stock("stock-1", "AZL4", "AZUL", 230.20);
+        cache.put(stock, cache.evictionCount());
+        assertEquals(Optional.of(stock), cache.get(stock.getId()));
+
+        Thread.sleep(150);
+
+        assertEquals(Optional.empty(), cache.get(stock.getId()));
+    }
+
+    @Test
+    void itShouldNotKeepStockWhenChangeLogWriteFails() {
+        StockService firstService = firstNode.getBean(StockService.class);
+        JdbcTemplate jdbcTemplate = firstNode.getBean(JdbcTemplate.class);
+
+        jdbcTemplate.execute("ALTER TABLE stock_change_log RENAME TO stock_change_log_unavailable");
+        try {
+            assertThrows(DataAccessException.class,
+                    () -> firstService.createStock(new RequestStockDTO("PTR4", "PETROBRAS", 38.50)));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE stock_change_log_unavailable RENAME TO stock_change_log");
+        }
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock", Integer.class));
+    }
+}
@@ -0,0 +1,112 @@
+package com.mandacarubroker.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class FlywayConfigurationTest {
+
+    private static DataSource newDatabase() {
+        return new DriverManagerDataSource("jdbc:h2:mem:flyway-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static Flyway flyway(final DataSource dataSource, final String... locations) {
+        if (locations.length == 0) {
+            return spy(Flyway.configure().dataSource(dataSource).load());
+        }
+        return spy(Flyway.configure().dataSource(dataSource).locations(locations).load());
+    }
+
+    @Test
+    void itShouldSkipMigrateWhenSchemaIsCurrentAndSkippingIsEnabled() {
+        DataSource dataSource = newDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        Flyway flyway = flyway(dataSource);
+
+        FlywayMigrationStrategy strategy = new FlywayConfiguration().flywayMigrationStrategy(true);
+        strategy.migrate(flyway);
+
+        verify(flyway, never()).migrate();
+        verify(flyway, never()).info();
+    }
+
+    @Test
+    void itShouldMigrateWhenMigrationsArePending() {
+        DataSource dataSource = newDatabase();
+        Flyway.configure().dataSource(dataSource).target("2").load().migrate();
+        Flyway flyway = flyway(dataSource);
+
+        assertFalse(FlywayConfiguration.isSchemaCurrent(flyway));
+
+        new FlywayConfiguration().flywayMigrationStrategy(true).migrate(flyway);
+
+        verify(flyway).migrate();
+        assertTrue(FlywayConfiguration.isSchemaCurrent(flyway));
+    }
+
+    @Test
+    void itShouldMigrateEmptyDatabase() {
+        DataSource dataSource = newDatabase();
+        Flyway flyway = flyway(dataSource);
+
+        new FlywayConfiguration().flywayMigrationStrategy(true).migrate(flyway);
+
+        verify(flyway).migrate();
+        assertTrue(FlywayConfiguration.isSchemaCurrent(flyway));
+    }
+
+    @Test
+    void itShouldMigrateWhenSkippingIsDisabled() {
+        DataSource dataSource = newDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        Flyway flyway = flyway(dataSource);
+
+        FlywayMigrationStrategy strategy = new FlywayConfiguration().flywayMigrationStrategy(false);
+        strategy.migrate(flyway);
+
+        verify(flyway).migrate();
+    }
+
+    @Test
+    void itShouldFindMigrationsInSubdirectories() {
+        DataSource dataSource = newDatabase();
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/nested").target("1").load().migrate();
+        Flyway flyway = flyway(dataSource, "classpath:db/nested");
+
+        assertFalse(FlywayConfiguration.isSchemaCurrent(flyway));
+
+        flyway.migrate();
+
+        assertTrue(FlywayConfiguration.isSchemaCurrent(flyway));
+    }
+
+    @Test
+    void itShouldNotSkipWhenJavaMigrationsAreConfigured() {
+        DataSource dataSource = newDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        Flyway flyway = Flyway.configure().dataSource(dataSource).javaMigrations(mock(JavaMigration.class)).load();
+
+        assertFalse(FlywayConfiguration.isSchemaCurrent(flyway));
+    }
+
+    @Test
+    void itShouldNotSkipWhenLocationContainsClasses() {
+        DataSource dataSource = newDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        Flyway flyway = flyway(dataSource, "classpath:db/migration", "classpath:com/mandacarubroker/config");
+
+        assertFalse(FlywayConfiguration.isSchemaCurrent(flyway));
+    }
+}
@@ -2,6 +2,8 @@ package com.mandacarubroker.controller;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.mandacarubroker.audit.StockAuditLog;
 import com.mandacarubroker.domain.stock.RequestStockDTO;
 import com.mandacarubroker.domain.stock.Stock;
 import com.mandacarubroker.domain.stock.StockRepository;
@@ -22,6 +24,8 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -41,6 +45,9 @@ class StockControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private StockAuditLog stockAuditLog;
+
     @BeforeEach
     public void initRepository() {
         stockRepository.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45)));
@@ -71,6 +78,32 @@ class StockControllerTest {
     }
 
 
+    @Test
+    void itShouldGetAllStocksAsCbor() throws Exception {
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/stocks")
+                .accept(MediaType.APPLICATION_CBOR);
+
+        byte[] body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Stock[] stocks = new CBORMapper().readValue(body, Stock[].class);
+
+        assertEquals(3, stocks.length);
+    }
+
+    @Test
+    void itShouldEncodeAllStocksAsCborSmallerThanJson() throws Exception {
+        byte[] json = mockMvc.perform(MockMvcRequestBuilders.get("/stocks").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] cbor = mockMvc.perform(MockMvcRequestBuilders.get("/stocks").accept(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertTrue(cbor.length < json.length);
+    }
+
     @Test
     void itShouldRetrieveStockById() throws Exception {
         Stock targetStock = stockRepository.findAll().get(0);
@@ -83,6 +116,25 @@ class StockControllerTest {
                 .andExpect(jsonPath("$.price").value(targetStock.getPrice()));
     }
 
+    @Test
+    void itShouldRetrieveStockByIdAsCbor() throws Exception {
+        Stock targetStock = stockRepository.findAll().get(0);
+
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/stocks/{id}", targetStock.getId())
+                .accept(MediaType.APPLICATION_CBOR);
+
+        byte[] body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Stock retrievedStock = new CBORMapper().readValue(body, Stock.class);
+
+        assertEquals(targetStock.getSymbol(), retrievedStock.getSymbol());
+        assertEquals(targetStock.getCompanyName(), retrievedStock.getCompanyName());
+        assertEquals(targetStock.getPrice(), retrievedStock.getPrice());
+    }
+
     @Test
     void itShouldRespondWithOkStatusWhenGetStockById() throws Exception {
         Stock targetStock = stockRepository.findAll().get(0);
@@ -103,6 +155,75 @@ class StockControllerTest {
     }
 
 
+    @Test
+    void itShouldRetrieveAnalyticsOfUpdatedStock() throws Exception {
+        Stock targetStock = stockRepository.findAll().get(0);
+
+        for (double price : new double[] {100.0, 110.0}) {
+            targetStock.setPrice(price);
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .put("/stocks/{id}", targetStock.getId())
+                    .content(objectMapper.writeValueAsString(targetStock))
+                    .contentType(MediaType.APPLICATION_JSON));
+        }
+
+        RequestBuilder request = MockMvcRequestBuilders.get("/stocks/{id}/analytics", targetStock.getId());
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockId").value(targetStock.getId()))
+                .andExpect(jsonPath("$.windows[0].count").value(2))
+                .andExpect(jsonPath("$.windows[0].sma").value(105.0));
+    }
+
+    @Test
+    void itShouldRespondWithNotFoundStatusWhenGetAnalyticsOfStockWithoutPriceChanges() throws Exception {
+        Stock targetStock = stockRepository.findAll().get(0);
+
+        RequestBuilder request = MockMvcRequestBuilders.get("/stocks/{id}/analytics", targetStock.getId());
+
+        mockMvc.perform(request)
+                .andExpect(status().isNotFound());
+    }
+
+
+    @Test
+    void itShouldRetrieveAuditOfUpdatedStock() throws Exception {
+        Stock targetStock = stockRepository.findAll().get(0);
+        double previousPrice = targetStock.getPrice();
+        targetStock.setPrice(100.0);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .put("/stocks/{id}", targetStock.getId())
+                .content(objectMapper.writeValueAsString(targetStock))
+                .contentType(MediaType.APPLICATION_JSON));
+        stockAuditLog.flush();
+
+        RequestBuilder request = MockMvcRequestBuilders.get("/stocks/{id}/audit", targetStock.getId())
+                .param("page", "0")
+                .param("size", "10");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].action").value("UPDATE"))
+                .andExpect(jsonPath("$[0].caller").value("127.0.0.1"))
+                .andExpect(jsonPath("$[0].before.price").value(previousPrice))
+                .andExpect(jsonPath("$[0].after.price").value(100.0));
+    }
+
+    @Test
+    void itShouldRespondWithBadRequestStatusWhenGetAuditWithInvalidPageSize() throws Exception {
+        Stock targetStock = stockRepository.findAll().get(0);
+
+        RequestBuilder request = MockMvcRequestBuilders.get("/stocks/{id}/audit", targetStock.getId())
+                .param("size", "0");
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void itShouldCreateNewStock() throws Exception {
         RequestStockDTO newStock = new RequestStockDTO("CMG4", "CEMIG", 129.67);
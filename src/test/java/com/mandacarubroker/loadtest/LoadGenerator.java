@@ -0,0 +1,329 @@
+package com.mandacarubroker.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mandacarubroker.MandacarubrokerApplication;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load generator for the stock endpoints.
+ *
+ * Starts {@link MandacarubrokerApplication} against embedded H2 and sends
+ * requests at a fixed arrival rate, whatever the response times are. Latency is
+ * measured from the time each request was scheduled to be sent rather than the
+ * time it actually was, so a stalled server is charged for the requests that
+ * queued up behind it (no coordinated omission).
+ *
+ * Arguments, all optional:
+ * {@code --rate=<requests per second>} (default 200),
+ * {@code --duration=<seconds>} (default 30),
+ * {@code --warmup=<seconds>} (default 5),
+ * {@code --stocks=<seeded stocks>} (default 100),
+ * {@code --mix=getAll:10,getById:70,create:10,update:10},
+ * {@code --output=target/load-test/results.json}.
+ *
+ * Every request times out after the largest latency the histograms can track
+ * and is then counted as an error of its operation. Requests still running
+ * once the last one should have timed out are reported as unfinished.
+ */
+public final class LoadGenerator {
+
+    /**
+     * The requests sent by the generator.
+     */
+    enum Operation {
+        GET_ALL("getAll"),
+        GET_BY_ID("getById"),
+        CREATE("create"),
+        UPDATE("update");
+
+        private final String key;
+
+        Operation(final String key) {
+            this.key = key;
+        }
+
+        static Operation fromKey(final String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equals(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation " + key);
+        }
+    }
+
+    private static final Pattern STOCK_ID = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+    private static final long MAX_TRACKABLE_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofNanos(MAX_TRACKABLE_LATENCY_NANOS);
+    private static final long COMPLETION_GRACE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final int rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int stockCount;
+    private final Map<Operation, Integer> mix;
+    private final Path output;
+
+    private final HttpClient client;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> timeouts = new EnumMap<>(Operation.class);
+    private final List<String> stockIds = new ArrayList<>();
+    private String baseUrl;
+
+    private LoadGenerator(final Map<String, String> options, final ExecutorService executor) {
+        this.rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        this.stockCount = Integer.parseInt(options.getOrDefault("stocks", "100"));
+        this.mix = parseMix(options.getOrDefault("mix", "getAll:10,getById:70,create:10,update:10"));
+        this.output = Path.of(options.getOrDefault("output", "target/load-test/results.json"));
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(MAX_TRACKABLE_LATENCY_NANOS, 3));
+            errors.put(operation, new AtomicLong());
+            timeouts.put(operation, new AtomicLong());
+        }
+    }
+
+    /**
+     * Runs the load test.
+     * @param args Options in {@code --name=value} form, see the class documentation.
+     * @throws Exception If the application cannot be started or the results cannot be written.
+     */
+    public static void main(final String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : String.join(" ", args).trim().split("\\s+")) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+
+        // DevTools would restart the application in another class loader and run this method again.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MandacarubrokerApplication.class)
+                .profiles("test")
+                .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_ON_EXIT=FALSE")) {
+            LoadGenerator generator = new LoadGenerator(options, executor);
+            generator.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            generator.seed();
+            generator.run();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        for (int i = 0; i < stockCount; i++) {
+            HttpResponse<String> response = client.send(createRequest(i), HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = STOCK_ID.matcher(response.body());
+            if (response.statusCode() != 201 || !matcher.find()) {
+                throw new IllegalStateException("Could not seed stock: " + response.statusCode() + " " + response.body());
+            }
+            stockIds.add(matcher.group(1));
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        Operation[] schedule = weightedSchedule();
+        SplittableRandom random = new SplittableRandom(42);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long totalRequests = (long) rate * (warmupSeconds + durationSeconds);
+        long warmupRequests = (long) rate * warmupSeconds;
+        CountDownLatch completed = new CountDownLatch((int) totalRequests);
+
+        long start = System.nanoTime();
+        long measurementStart = start + warmupRequests * intervalNanos;
+
+        for (long i = 0; i < totalRequests; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            Operation operation = schedule[random.nextInt(schedule.length)];
+            boolean measured = i >= warmupRequests;
+            client.sendAsync(request(operation, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (measured) {
+                            recorders.get(operation).recordValue(
+                                    Math.min(System.nanoTime() - intendedStart, MAX_TRACKABLE_LATENCY_NANOS));
+                            if (failure != null || response.statusCode() >= 400) {
+                                errors.get(operation).incrementAndGet();
+                            }
+                            if (isTimeout(failure)) {
+                                timeouts.get(operation).incrementAndGet();
+                            }
+                        }
+                        completed.countDown();
+                    });
+        }
+
+        // Every request times out on its own, so this only expires if the client itself stalls.
+        if (!completed.await(MAX_TRACKABLE_LATENCY_NANOS + COMPLETION_GRACE_NANOS, TimeUnit.NANOSECONDS)) {
+            System.err.println(completed.getCount() + " requests did not complete, results are incomplete");
+        }
+        long elapsedNanos = System.nanoTime() - measurementStart;
+
+        writeResults(elapsedNanos, completed.getCount());
+    }
+
+    private static boolean isTimeout(final Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        return cause instanceof HttpTimeoutException;
+    }
+
+    private HttpRequest request(final Operation operation, final SplittableRandom random) {
+        String stockId = stockIds.get(random.nextInt(stockIds.size()));
+
+        return switch (operation) {
+            case GET_ALL -> HttpRequest.newBuilder(URI.create(baseUrl + "/stocks"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            case GET_BY_ID -> HttpRequest.newBuilder(URI.create(baseUrl + "/stocks/" + stockId))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            case CREATE -> createRequest(random.nextInt(10000));
+            case UPDATE -> HttpRequest.newBuilder(URI.create(baseUrl + "/stocks/" + stockId))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(stockJson(random.nextInt(10000))))
+                    .build();
+        };
+    }
+
+    private HttpRequest createRequest(final int seed) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/stocks"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(stockJson(seed)))
+                .build();
+    }
+
+    private static String stockJson(final int seed) {
+        String symbol = "" + (char) ('A' + seed % 26) + (char) ('A' + seed / 26 % 26) + (char) ('A' + seed / 676 % 26)
+                + seed % 10;
+        return String.format(Locale.ROOT, "{\"symbol\":\"%s\",\"companyName\":\"COMPANY %d\",\"price\":%.2f}",
+                symbol, seed, 1 + seed / 100.0);
+    }
+
+    private Operation[] weightedSchedule() {
+        List<Operation> schedule = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        });
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("The request mix must have a positive weight");
+        }
+        return schedule.toArray(Operation[]::new);
+    }
+
+    private static Map<Operation, Integer> parseMix(final String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(Operation.fromKey(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private void writeResults(final long elapsedNanos, final long unfinishedRequests) throws IOException {
+        double elapsedSeconds = elapsedNanos / 1e9;
+        Histogram total = new Histogram(MAX_TRACKABLE_LATENCY_NANOS, 3);
+        long totalErrors = 0;
+        long totalTimeouts = 0;
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Operation operation : mix.keySet()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            long operationErrors = errors.get(operation).get();
+            long operationTimeouts = timeouts.get(operation).get();
+            total.add(histogram);
+            totalErrors += operationErrors;
+            totalTimeouts += operationTimeouts;
+            operations.put(operation.key, summary(histogram, operationErrors, operationTimeouts, elapsedSeconds));
+        }
+
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("targetRate", rate);
+        configuration.put("durationSeconds", durationSeconds);
+        configuration.put("warmupSeconds", warmupSeconds);
+        configuration.put("seededStocks", stockCount);
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> weights.put(operation.key, weight));
+        configuration.put("mix", weights);
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("configuration", configuration);
+        results.put("elapsedSeconds", elapsedSeconds);
+        results.put("unfinishedRequests", unfinishedRequests);
+        results.put("total", summary(total, totalErrors, totalTimeouts, elapsedSeconds));
+        results.put("operations", operations);
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), results);
+        System.out.println("Load test results written to " + output.toAbsolutePath());
+    }
+
+    private static Map<String, Object> summary(final Histogram histogram, final long errorCount,
+                                               final long timeoutCount, final double elapsedSeconds) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            String label = percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+            latency.put("p" + label, toMillis(histogram.getValueAtPercentile(percentile)));
+        }
+        latency.put("max", toMillis(histogram.getMaxValue()));
+        latency.put("mean", histogram.getTotalCount() == 0 ? 0 : toMillis((long) histogram.getMean()));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("errors", errorCount);
+        summary.put("timeouts", timeoutCount);
+        summary.put("errorRate", histogram.getTotalCount() == 0 ? 0 : (double) errorCount / histogram.getTotalCount());
+        summary.put("throughputPerSecond", histogram.getTotalCount() / elapsedSeconds);
+        summary.put("latencyMillis", latency);
+        return summary;
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -1,5 +1,6 @@
 package com.mandacarubroker.service;
 
+import com.mandacarubroker.analytics.StockAnalyticsDTO;
 import com.mandacarubroker.domain.stock.RequestStockDTO;
 import com.mandacarubroker.domain.stock.Stock;
 import com.mandacarubroker.domain.stock.StockRepository;
@@ -113,6 +114,20 @@ class StockServiceTest {
 
     }
 
+    @Test
+    void itShouldNotRecordAnalyticsWhenUpdateKeepsPrice() {
+
+        Stock targetUpdatingStock = stockRepository.findAll().get(0);
+
+        stockService.updateStock(targetUpdatingStock.getId(), new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 100.0)));
+        stockService.updateStock(targetUpdatingStock.getId(), new Stock(new RequestStockDTO("RPM3", "3R PETRÓLEO", 100.0)));
+
+        StockAnalyticsDTO.Window window = stockService.getStockAnalytics(targetUpdatingStock.getId()).get().windows().get(0);
+
+        assertEquals(1, window.count());
+        assertEquals(100.0, window.sma());
+    }
+
     @Test
     void itShouldDeleteStock() {
 
@@ -0,0 +1,164 @@
+package com.mandacarubroker.storage;
+
+import com.mandacarubroker.domain.stock.RequestStockDTO;
+import com.mandacarubroker.domain.stock.Stock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalStockStoreTest {
+
+    private static final int JOURNAL_CAPACITY = 4096;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void itShouldAssignIdOnSave() throws IOException {
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            Stock savedStock = store.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45)));
+
+            assertNotNull(savedStock.getId());
+            assertEquals("RPM3", store.findById(savedStock.getId()).get().getSymbol());
+        }
+    }
+
+    @Test
+    void itShouldRestoreStocksFromJournalAfterRestart() throws IOException {
+        String updatedId;
+        String deletedId;
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            Stock updatedStock = store.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45)));
+            deletedId = store.save(new Stock(new RequestStockDTO("ALL3", "ALLOS", 121.60))).getId();
+
+            updatedStock.setPrice(95.10);
+            updatedId = store.save(updatedStock).getId();
+            store.deleteById(deletedId);
+        }
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            assertEquals(1, store.findAll().size());
+            assertEquals(95.10, store.findById(updatedId).get().getPrice());
+            assertEquals(Optional.empty(), store.findById(deletedId));
+        }
+    }
+
+    @Test
+    void itShouldRestoreStocksFromSnapshotAndJournalAfterRestart() throws IOException {
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            store.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45)));
+            store.snapshot();
+
+            assertEquals(0, store.journalPosition());
+
+            store.save(new Stock(new RequestStockDTO("ALL3", "ALLOS", 121.60)));
+        }
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            assertEquals(2, store.findAll().size());
+        }
+    }
+
+    @Test
+    void itShouldGrowJournalBeyondInitialCapacity() throws IOException {
+        try (JournalStockStore store = new JournalStockStore(directory, 64)) {
+            for (int i = 0; i < 100; i++) {
+                store.save(new Stock(new RequestStockDTO("STK" + (i % 10), "COMPANY " + i, 10.0 + i)));
+            }
+        }
+
+        try (JournalStockStore store = new JournalStockStore(directory, 64)) {
+            assertEquals(100, store.findAll().size());
+        }
+    }
+
+    @Test
+    void itShouldKeepConcurrentGroupCommitWrites() throws Exception {
+        int threads = 8;
+        int writesPerThread = 50;
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY,
+                JournalStockStore.ForcePolicy.GROUP_COMMIT)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < writesPerThread; i++) {
+                        store.save(new Stock(new RequestStockDTO("T" + thread, "COMPANY " + i, 10.0 + i)));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            executor.shutdown();
+        }
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            assertEquals(threads * writesPerThread, store.findAll().size());
+        }
+    }
+
+    @Test
+    void itShouldRestoreStocksWrittenWithEveryWritePolicy() throws IOException {
+        String deletedId;
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY,
+                JournalStockStore.ForcePolicy.EVERY_WRITE)) {
+            store.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45)));
+            deletedId = store.save(new Stock(new RequestStockDTO("ALL3", "ALLOS", 121.60))).getId();
+            store.deleteById(deletedId);
+        }
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            assertEquals(1, store.findAll().size());
+            assertEquals(Optional.empty(), store.findById(deletedId));
+        }
+    }
+
+    @Test
+    void itShouldRecoverFromJournalTruncatedMidRecord() throws IOException {
+        String firstId;
+        int intactLength;
+        int fullLength;
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            firstId = store.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45))).getId();
+            intactLength = store.journalPosition();
+            store.save(new Stock(new RequestStockDTO("ALL3", "ALLOS", 121.60)));
+            fullLength = store.journalPosition();
+        }
+
+        try (FileChannel channel = FileChannel.open(directory.resolve("stocks.journal"), StandardOpenOption.WRITE)) {
+            channel.truncate(intactLength + (fullLength - intactLength) / 2);
+        }
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            assertEquals(1, store.findAll().size());
+            assertTrue(store.findById(firstId).isPresent());
+            assertEquals(intactLength, store.journalPosition());
+
+            store.save(new Stock(new RequestStockDTO("AZL4", "AZUL", 230.20)));
+        }
+
+        try (JournalStockStore store = new JournalStockStore(directory, JOURNAL_CAPACITY)) {
+            assertEquals(2, store.findAll().size());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.mandacarubroker.storage;
+
+import com.mandacarubroker.domain.stock.RequestStockDTO;
+import com.mandacarubroker.domain.stock.Stock;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedStockStoreTest {
+
+    private static final int STOCK_COUNT = 200;
+
+    private final List<DataSource> shards = new ArrayList<>();
+
+    @BeforeEach
+    public void createShards() {
+        for (int i = 0; i < 3; i++) {
+            DataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+            Flyway.configure().dataSource(dataSource).load().migrate();
+            shards.add(dataSource);
+        }
+    }
+
+    private static int countStocks(final DataSource shard) {
+        return new JdbcTemplate(shard).queryForObject("SELECT COUNT(*) FROM stock", Integer.class);
+    }
+
+    private static Set<String> saveStocks(final ShardedStockStore store) {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < STOCK_COUNT; i++) {
+            ids.add(store.save(new Stock(new RequestStockDTO("STK" + i, "COMPANY " + i, 10.0 + i))).getId());
+        }
+        return ids;
+    }
+
+    private static void assertEveryStockOnItsOwner(final List<DataSource> layout, final Set<String> ids) {
+        ConsistentHashRing ring = new ConsistentHashRing(layout.size());
+        int total = 0;
+        for (int shard = 0; shard < layout.size(); shard++) {
+            List<String> shardIds = new JdbcTemplate(layout.get(shard)).queryForList("SELECT id FROM stock", String.class);
+            for (String id : shardIds) {
+                assertEquals(shard, ring.shardFor(id));
+            }
+            total += shardIds.size();
+        }
+        assertEquals(ids.size(), total);
+    }
+
+    @Test
+    void itShouldStoreEachStockInExactlyOneShard() {
+        try (ShardedStockStore store = new ShardedStockStore(shards)) {
+            Stock savedStock = store.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45)));
+
+            assertNotNull(savedStock.getId());
+            assertEquals(1, shards.stream().mapToInt(ShardedStockStoreTest::countStocks).sum());
+            assertEquals("RPM3", store.findById(savedStock.getId()).get().getSymbol());
+        }
+    }
+
+    @Test
+    void itShouldSpreadStocksOverAllShards() {
+        try (ShardedStockStore store = new ShardedStockStore(shards)) {
+            Set<String> ids = saveStocks(store);
+
+            for (DataSource shard : shards) {
+                assertTrue(countStocks(shard) > 0);
+            }
+            assertEveryStockOnItsOwner(shards, ids);
+        }
+    }
+
+    @Test
+    void itShouldMergeStocksOfAllShards() {
+        try (ShardedStockStore store = new ShardedStockStore(shards)) {
+            Set<String> ids = saveStocks(store);
+
+            Set<String> foundIds = new HashSet<>();
+            store.streamAll().forEach(stock -> foundIds.add(stock.getId()));
+
+            assertEquals(ids, foundIds);
+            assertEquals(ids.size(), store.findAll().size());
+        }
+    }
+
+    @Test
+    void itShouldStreamShardsInCompletionOrder() {
+        Set<String> ids;
+        try (ShardedStockStore store = new ShardedStockStore(shards)) {
+            ids = saveStocks(store);
+        }
+
+        CountDownLatch firstShardReleased = new CountDownLatch(1);
+        List<DataSource> layout = new ArrayList<>(shards);
+        layout.set(0, new BlockingDataSource(shards.get(0), firstShardReleased));
+
+        try (ShardedStockStore store = new ShardedStockStore(layout)) {
+            Iterator<Stock> stocks = store.streamAll().iterator();
+
+            assertNotEquals(0, new ConsistentHashRing(layout.size()).shardFor(stocks.next().getId()));
+
+            firstShardReleased.countDown();
+            int count = 1;
+            while (stocks.hasNext()) {
+                stocks.next();
+                count++;
+            }
+            assertEquals(ids.size(), count);
+        }
+    }
+
+    @Test
+    void itShouldUpdateAndDeleteOnOwningShard() {
+        try (ShardedStockStore store = new ShardedStockStore(shards)) {
+            Stock stock = store.save(new Stock(new RequestStockDTO("RPM3", "3R PETROLEUM", 90.45)));
+
+            stock.setPrice(95.10);
+            store.save(stock);
+            assertEquals(95.10, store.findById(stock.getId()).get().getPrice());
+            assertEquals(1, shards.stream().mapToInt(ShardedStockStoreTest::countStocks).sum());
+
+            store.deleteById(stock.getId());
+            assertEquals(Optional.empty(), store.findById(stock.getId()));
+            assertEquals(0, shards.stream().mapToInt(ShardedStockStoreTest::countStocks).sum());
+        }
+    }
+
+    @Test
+    void itShouldRebalanceWhenAddingAShard() {
+        List<DataSource> oldLayout = shards.subList(0, 2);
+        Set<String> ids;
+        try (ShardedStockStore store = new ShardedStockStore(oldLayout)) {
+            ids = saveStocks(store);
+        }
+
+        int moved = StockShardRebalancer.rebalance(oldLayout, shards);
+
+        assertEquals(countStocks(shards.get(2)), moved);
+        assertEveryStockOnItsOwner(shards, ids);
+        try (ShardedStockStore store = new ShardedStockStore(shards)) {
+            for (String id : ids) {
+                assertTrue(store.findById(id).isPresent());
+            }
+        }
+    }
+
+    @Test
+    void itShouldRebalanceWhenRemovingAShard() {
+        Set<String> ids;
+        try (ShardedStockStore store = new ShardedStockStore(shards)) {
+            ids = saveStocks(store);
+        }
+        int removedShardCount = countStocks(shards.get(2));
+
+        List<DataSource> newLayout = shards.subList(0, 2);
+        int moved = StockShardRebalancer.rebalance(shards, newLayout);
+
+        assertEquals(removedShardCount, moved);
+        assertEquals(0, countStocks(shards.get(2)));
+        assertEveryStockOnItsOwner(newLayout, ids);
+    }
+
+    /**
+     * Holds every connection request until released, like an overloaded shard.
+     */
+    private static final class BlockingDataSource extends DelegatingDataSource {
+
+        private final CountDownLatch released;
+
+        BlockingDataSource(final DataSource dataSource, final CountDownLatch released) {
+            super(dataSource);
+            this.released = released;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1 @@
+CREATE TABLE nested_first(id VARCHAR PRIMARY KEY);
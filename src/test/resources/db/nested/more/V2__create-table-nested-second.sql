@@ -0,0 +1 @@
+CREATE TABLE nested_second(id VARCHAR PRIMARY KEY);